@@ -0,0 +1,47 @@
+package com.example.bankcards.config;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Configuration
+@EnableCaching
+public class CacheConfig {
+
+    public static final String PRINCIPALS = "principals";
+    public static final String CARD_BALANCES = "cardBalances";
+    public static final String IDEMPOTENT_RESPONSES = "idempotentResponses";
+
+    @Bean
+    public CacheManager cacheManager(
+            @Value("${app.security.principal-cache.ttl:5m}") Duration principalTtl,
+            @Value("${app.security.principal-cache.max-size:10000}") long principalMaxSize,
+            @Value("${app.cards.balance-cache.ttl:1m}") Duration balanceTtl,
+            @Value("${app.cards.balance-cache.max-size:100000}") long balanceMaxSize,
+            @Value("${app.idempotency.near-cache.ttl:10m}") Duration idempotencyTtl,
+            @Value("${app.idempotency.near-cache.max-size:10000}") long idempotencyMaxSize) {
+        CaffeineCacheManager cacheManager = new CaffeineCacheManager();
+        cacheManager.registerCustomCache(PRINCIPALS, Caffeine.newBuilder()
+                .maximumSize(principalMaxSize)
+                .expireAfterWrite(principalTtl)
+                .recordStats()
+                .build());
+        cacheManager.registerCustomCache(CARD_BALANCES, Caffeine.newBuilder()
+                .maximumSize(balanceMaxSize)
+                .expireAfterWrite(balanceTtl)
+                .recordStats()
+                .build());
+        cacheManager.registerCustomCache(IDEMPOTENT_RESPONSES, Caffeine.newBuilder()
+                .maximumSize(idempotencyMaxSize)
+                .expireAfterWrite(idempotencyTtl)
+                .recordStats()
+                .build());
+        return cacheManager;
+    }
+}
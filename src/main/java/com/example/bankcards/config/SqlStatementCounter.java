@@ -0,0 +1,64 @@
+package com.example.bankcards.config;
+
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * Счётчик SQL-запросов, которые Hibernate отправляет в текущем потоке. Подключается к Hibernate
+ * как StatementInspector; запросы считаются только внутри открытого {@link Scope}.
+ * Области вкладываются: запросы внутренней засчитываются и во внешнюю.
+ * Запросы через JdbcTemplate и из других потоков (например, потоковая выгрузка выписки) не учитываются.
+ */
+@Component
+public class SqlStatementCounter implements StatementInspector, HibernatePropertiesCustomizer {
+
+    private final ThreadLocal<Scope> current = new ThreadLocal<>();
+
+    @Override
+    public void customize(Map<String, Object> hibernateProperties) {
+        hibernateProperties.put(AvailableSettings.STATEMENT_INSPECTOR, this);
+    }
+
+    @Override
+    public String inspect(String sql) {
+        Scope scope = current.get();
+        if (scope != null) {
+            scope.count++;
+        }
+        return sql;
+    }
+
+    public Scope open() {
+        Scope scope = new Scope(current.get());
+        current.set(scope);
+        return scope;
+    }
+
+    public final class Scope implements AutoCloseable {
+
+        private final Scope parent;
+        private int count;
+
+        private Scope(Scope parent) {
+            this.parent = parent;
+        }
+
+        public int count() {
+            return count;
+        }
+
+        @Override
+        public void close() {
+            if (parent != null) {
+                parent.count += count;
+                current.set(parent);
+            } else {
+                current.remove();
+            }
+        }
+    }
+}
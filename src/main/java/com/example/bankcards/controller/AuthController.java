@@ -43,12 +43,9 @@ public class AuthController {
         }
 
         User newUser = userService.createUser(registerRequest.getUsername(), registerRequest.getPassword(), "USER");
-        
-        Authentication authentication = authenticationManager.authenticate(
-                new UsernamePasswordAuthenticationToken(registerRequest.getUsername(), registerRequest.getPassword()));
 
-        SecurityContextHolder.getContext().setAuthentication(authentication);
-        String jwt = jwtTokenProvider.generateToken(authentication);
+        // Пароль только что захеширован при создании — повторная проверка BCrypt не нужна
+        String jwt = jwtTokenProvider.generateToken(newUser.getId(), newUser.getUsername(), newUser.getRole().getId());
 
         return ResponseEntity.ok(new AuthResponseDto(jwt, newUser.getUsername(), newUser.getRole().getId()));
     }
@@ -2,16 +2,20 @@ package com.example.bankcards.controller;
 
 import com.example.bankcards.dto.*;
 import com.example.bankcards.entity.enums.CardStatus;
+import com.example.bankcards.service.CardBalanceSlotServiceImpl;
 import com.example.bankcards.service.CardServiceImpl;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.domain.Sort;
 import org.springframework.data.web.PageableDefault;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import java.math.BigDecimal;
 
@@ -22,6 +26,7 @@ import static org.springframework.http.ResponseEntity.ok;
 @RequiredArgsConstructor
 public class CardsControllerImpl {
     private final CardServiceImpl cardService;
+    private final CardBalanceSlotServiceImpl balanceSlotService;
 
     @PostMapping()
     @PreAuthorize("hasRole('ADMIN')")
@@ -39,23 +44,47 @@ public class CardsControllerImpl {
 
     @GetMapping("/user/{userId}")
     @PreAuthorize("hasAnyRole('ADMIN', 'USER')")
-    public ResponseEntity<Page<CardSearchResponse>> getUserCards(
+    public ResponseEntity<Slice<CardSearchResponse>> getUserCards(
             @PathVariable Long userId,
             @RequestParam(required = false) String search,
             @RequestParam(required = false) CardStatus status,
+            @RequestParam(defaultValue = "PAGE") CardListingMode mode,
             @PageableDefault(sort = "id", direction = Sort.Direction.DESC) Pageable pageable) {
 
         CardSearchRequest searchRequest = new CardSearchRequest(search, status);
-        Page<CardSearchResponse> cards = cardService.getUserCards(userId, searchRequest, pageable);
+        Slice<CardSearchResponse> cards = mode == CardListingMode.SLICE
+                ? cardService.getUserCardsSlice(userId, searchRequest, pageable)
+                : cardService.getUserCards(userId, searchRequest, pageable);
         return ResponseEntity.ok(cards);
     }
 
 
+    @GetMapping("/search")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Page<CardSearchResponse>> searchCards(
+            @RequestParam String number,
+            @PageableDefault(sort = "id", direction = Sort.Direction.DESC) Pageable pageable) {
+        return ok(cardService.searchCards(number, pageable));
+    }
+
+
     @GetMapping("/{cardId}/balance")
     @PreAuthorize("hasAnyRole('ADMIN', 'USER')")
-    public ResponseEntity<BigDecimal> getCardBalance(@PathVariable Long cardId) {
-        BigDecimal balance = cardService.getCardBalance(cardId);
-        return ResponseEntity.ok(balance);
+    public ResponseEntity<BigDecimal> getCardBalance(@PathVariable Long cardId, WebRequest webRequest) {
+        CardBalanceSnapshot balance = cardService.getCardBalance(cardId);
+        String eTag = "\"" + balance.version() + "\"";
+        if (webRequest.checkNotModified(eTag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(eTag).build();
+        }
+        return ResponseEntity.ok().eTag(eTag).body(balance.balance().toBigDecimal());
+    }
+
+
+    @PutMapping("/{cardId}/balance-slots")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Void> configureBalanceSlots(@PathVariable Long cardId, @RequestParam int count) {
+        balanceSlotService.configureSlots(cardId, count);
+        return ResponseEntity.noContent().build();
     }
 
 
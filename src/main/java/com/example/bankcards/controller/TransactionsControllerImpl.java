@@ -1,14 +1,33 @@
 package com.example.bankcards.controller;
 
+import com.example.bankcards.dto.BatchTransferMode;
+import com.example.bankcards.dto.BatchTransferResponseDto;
+import com.example.bankcards.dto.StatementFormat;
+import com.example.bankcards.dto.TransactionDirection;
+import com.example.bankcards.dto.TransactionHistoryRequest;
+import com.example.bankcards.dto.TransactionPageResponseDto;
 import com.example.bankcards.dto.TransactionRequestDto;
 import com.example.bankcards.dto.TransactionResponseDto;
+import com.example.bankcards.entity.Money;
+import com.example.bankcards.service.IdempotencyServiceImpl;
+import com.example.bankcards.service.StatementServiceImpl;
 import com.example.bankcards.service.TransactionServiceImpl;
 import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.security.Principal;
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.zip.GZIPOutputStream;
 
 import static org.springframework.http.ResponseEntity.ok;
 
@@ -17,18 +36,78 @@ import static org.springframework.http.ResponseEntity.ok;
 @RequiredArgsConstructor
 public class TransactionsControllerImpl {
     private final TransactionServiceImpl transactionService;
+    private final StatementServiceImpl statementService;
+    private final IdempotencyServiceImpl idempotencyService;
 
     @PostMapping()
     @PreAuthorize("hasAnyRole('ADMIN', 'USER')")
-    public ResponseEntity<TransactionResponseDto> addTransfer(@RequestBody TransactionRequestDto transactionRequestDto) {
+    public ResponseEntity<TransactionResponseDto> addTransfer(
+            @RequestBody TransactionRequestDto transactionRequestDto,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey,
+            Principal principal) {
+        if (idempotencyKey != null) {
+            return ok(idempotencyService.createTransfer(principal.getName(), idempotencyKey, transactionRequestDto));
+        }
         return ok(transactionService.createTransfer(transactionRequestDto));
     }
 
-   @GetMapping("/{cardNumber}")
-   @PreAuthorize("hasAnyRole('ADMIN', 'USER')")
-    public ResponseEntity<List<TransactionResponseDto>> getCardTransactions(
-            @PathVariable String cardNumber
+    @PostMapping("/batch")
+    @PreAuthorize("hasAnyRole('ADMIN', 'USER')")
+    public ResponseEntity<BatchTransferResponseDto> addTransfers(
+            @RequestBody List<TransactionRequestDto> transfers,
+            @RequestParam(defaultValue = "BEST_EFFORT") BatchTransferMode mode) {
+        return ok(transactionService.createTransfers(transfers, mode));
+    }
+
+    @GetMapping("/{cardNumber}")
+    @PreAuthorize("hasAnyRole('ADMIN', 'USER')")
+    public ResponseEntity<TransactionPageResponseDto> getCardTransactions(
+            @PathVariable String cardNumber,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "50") int limit,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(required = false) TransactionDirection direction,
+            @RequestParam(required = false) BigDecimal minAmount,
+            @RequestParam(required = false) BigDecimal maxAmount
+    ) {
+        TransactionHistoryRequest request = new TransactionHistoryRequest(from, to, direction,
+                minAmount == null ? null : Money.of(minAmount), maxAmount == null ? null : Money.of(maxAmount));
+        return ok(transactionService.getTransactionsByCardId(cardNumber, request, cursor, limit));
+    }
+
+    @GetMapping("/{cardNumber}/export")
+    @PreAuthorize("hasAnyRole('ADMIN', 'USER')")
+    public ResponseEntity<StreamingResponseBody> exportCardTransactions(
+            @PathVariable String cardNumber,
+            @RequestParam(defaultValue = "csv") String format,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding
     ) {
-        return ok(transactionService.getTransactionsByCardId(cardNumber));
+        StatementFormat statementFormat = statementService.parseFormat(format);
+        Long cardId = statementService.getCardId(cardNumber);
+        boolean gzip = acceptEncoding != null && acceptEncoding.contains("gzip");
+
+        StreamingResponseBody body = out -> {
+            if (gzip) {
+                // syncFlush: периодический flush выписки доходит до клиента, а не копится в буфере сжатия
+                GZIPOutputStream gzipOut = new GZIPOutputStream(out, 8192, true);
+                statementService.exportStatement(cardId, statementFormat, gzipOut);
+                gzipOut.finish();
+            } else {
+                statementService.exportStatement(cardId, statementFormat, out);
+            }
+        };
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(statementFormat == StatementFormat.CSV
+                        ? new MediaType("text", "csv", StandardCharsets.UTF_8)
+                        : MediaType.APPLICATION_NDJSON)
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                        .filename("statement-" + cardNumber + "." + statementFormat.name().toLowerCase())
+                        .build().toString());
+        if (gzip) {
+            response.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        return response.body(body);
     }
 }
@@ -0,0 +1,26 @@
+package com.example.bankcards.dto;
+
+public record BatchTransferItemResult(
+        int index,
+        Status status,
+        Integer transactionId,
+        String error
+) {
+    public enum Status {
+        SUCCESS,
+        FAILED,
+        ROLLED_BACK
+    }
+
+    public static BatchTransferItemResult success(int index, Integer transactionId) {
+        return new BatchTransferItemResult(index, Status.SUCCESS, transactionId, null);
+    }
+
+    public static BatchTransferItemResult failed(int index, String error) {
+        return new BatchTransferItemResult(index, Status.FAILED, null, error);
+    }
+
+    public static BatchTransferItemResult rolledBack(int index) {
+        return new BatchTransferItemResult(index, Status.ROLLED_BACK, null, null);
+    }
+}
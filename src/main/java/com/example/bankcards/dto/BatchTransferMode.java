@@ -0,0 +1,6 @@
+package com.example.bankcards.dto;
+
+public enum BatchTransferMode {
+    ATOMIC,       // все переводы пакета проводятся, либо ни один
+    BEST_EFFORT   // проводятся корректные переводы, ошибочные пропускаются
+}
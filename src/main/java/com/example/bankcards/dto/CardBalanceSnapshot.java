@@ -0,0 +1,23 @@
+package com.example.bankcards.dto;
+
+import com.example.bankcards.entity.Money;
+import com.example.bankcards.entity.enums.CardStatus;
+
+import java.math.BigDecimal;
+
+/**
+ * Баланс и статус карты вместе с версией строки (для карт со слотами — плюс версии слотов);
+ * версия служит ETag для /api/cards/{cardId}/balance.
+ */
+public record CardBalanceSnapshot(
+        Long cardId,
+        Money balance,
+        CardStatus status,
+        Long version
+) {
+
+    // Для JPQL-проекции: баланс со слотами считается в запросе и приходит как BigDecimal
+    public CardBalanceSnapshot(Long cardId, BigDecimal balance, CardStatus status, Long version) {
+        this(cardId, Money.of(balance), status, version);
+    }
+}
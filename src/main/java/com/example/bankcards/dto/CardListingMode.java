@@ -0,0 +1,6 @@
+package com.example.bankcards.dto;
+
+public enum CardListingMode {
+    PAGE,   // страница с общим числом карт (дополнительный COUNT)
+    SLICE   // только признак следующей страницы, без COUNT — для бесконечной прокрутки
+}
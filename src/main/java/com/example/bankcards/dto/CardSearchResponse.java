@@ -1,5 +1,7 @@
 package com.example.bankcards.dto;
 
+import com.example.bankcards.entity.Money;
+
 import java.math.BigDecimal;
 import java.time.LocalDate;
 
@@ -7,6 +9,12 @@ public record CardSearchResponse(
         Long id,
         String maskedCardNumber,
         String status,
-        BigDecimal balance,
+        Money balance,
         LocalDate expirationDate
-) {}
+) {
+
+    // Для JPQL-проекции: баланс со слотами считается в запросе и приходит как BigDecimal
+    public CardSearchResponse(Long id, String maskedCardNumber, String status, BigDecimal balance, LocalDate expirationDate) {
+        this(id, maskedCardNumber, status, Money.of(balance), expirationDate);
+    }
+}
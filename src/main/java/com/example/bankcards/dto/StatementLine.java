@@ -0,0 +1,14 @@
+package com.example.bankcards.dto;
+
+import com.example.bankcards.entity.Money;
+
+import java.time.LocalDateTime;
+
+public record StatementLine(
+        Integer id,
+        LocalDateTime timestamp,
+        TransactionDirection direction,
+        String counterpartyCard,
+        Money amount
+) {
+}
@@ -0,0 +1,6 @@
+package com.example.bankcards.dto;
+
+public enum TransactionDirection {
+    INCOMING,
+    OUTGOING
+}
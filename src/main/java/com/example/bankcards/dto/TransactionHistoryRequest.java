@@ -0,0 +1,13 @@
+package com.example.bankcards.dto;
+
+import com.example.bankcards.entity.Money;
+
+import java.time.LocalDateTime;
+
+public record TransactionHistoryRequest(
+        LocalDateTime from,                 // начало периода (включительно)
+        LocalDateTime to,                   // конец периода (не включительно)
+        TransactionDirection direction,     // null — входящие и исходящие
+        Money minAmount,
+        Money maxAmount
+) {}
@@ -0,0 +1,10 @@
+package com.example.bankcards.dto;
+
+import java.util.List;
+
+public record TransactionPageResponseDto(
+        List<TransactionResponseDto> content,
+        String nextCursor,   // null, если страниц больше нет
+        boolean hasNext
+) {
+}
@@ -1,11 +1,12 @@
 package com.example.bankcards.dto;
 
-import java.math.BigDecimal;
+import com.example.bankcards.entity.Money;
+
 import java.time.LocalDateTime;
 
 public record TransactionRequestDto(
         String fromCardNumber,
         String toCardNumber,
-        BigDecimal amount
+        Money amount
 ) {
 }
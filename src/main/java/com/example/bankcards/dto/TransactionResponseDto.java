@@ -1,9 +1,19 @@
 package com.example.bankcards.dto;
 
-import com.example.bankcards.entity.Transaction;
+import com.example.bankcards.entity.Money;
 
-import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
-public record TransactionResponseDto(Transaction transaction) {
+/**
+ * Перевод в ответе API: номера карт маскированы, направление — относительно карты,
+ * по которой запрошена история (для созданного перевода — OUTGOING).
+ */
+public record TransactionResponseDto(
+        Integer id,
+        String maskedFromCardNumber,
+        String maskedToCardNumber,
+        Money amount,
+        LocalDateTime timestamp,
+        TransactionDirection direction
+) {
 }
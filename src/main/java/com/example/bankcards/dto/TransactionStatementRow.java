@@ -0,0 +1,19 @@
+package com.example.bankcards.dto;
+
+import com.example.bankcards.entity.Money;
+
+import java.time.LocalDateTime;
+
+/**
+ * Строка выписки, читаемая проекцией без загрузки сущностей в контекст персистентности.
+ */
+public record TransactionStatementRow(
+        Integer id,
+        LocalDateTime timestamp,
+        Long fromCardId,
+        String fromCardNumber,
+        Long toCardId,
+        String toCardNumber,
+        Money amount
+) {
+}
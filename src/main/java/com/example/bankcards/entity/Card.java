@@ -1,15 +1,15 @@
 package com.example.bankcards.entity;
 
 import com.example.bankcards.entity.enums.CardStatus;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import lombok.*;
 
-import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.util.List;
 
 @Entity
-@Table(name = "cards")
+@Table(name = "cards", indexes = @Index(name = "idx_cards_status_expiration_date", columnList = "status, expiration_date"))
 @Getter
 @Setter
 @NoArgsConstructor
@@ -24,8 +24,11 @@ public class Card {
     @Column(name = "card_number", nullable = false, unique = true)
     private String cardNumber;
 
+    // API отвечает DTO, сущности не сериализуются; если карта всё же попадёт в JSON, владелец с хешем пароля
+    // и ленивый список переводов в него не выводятся
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "owner_id", nullable = false)
+    @JsonIgnore
     private User owner;
 
     @Column(name = "expiration_date", nullable = false)
@@ -35,10 +38,19 @@ public class Card {
     @Column(nullable = false)
     private CardStatus status;
 
+    @Column(nullable = false, precision = 19, scale = 2)
+    private Money balance;
+
+    @Version
     @Column(nullable = false)
-    private BigDecimal balance;
+    private Long version;
+
+    // Число слотов баланса (CardBalanceSlot); 0 — весь баланс хранится в этой строке
+    @Column(name = "balance_slots", nullable = false)
+    private int balanceSlots;
 
     @OneToMany(mappedBy = "fromCard")
+    @JsonIgnore
     private List<Transaction> sentTransactions;
 
 }
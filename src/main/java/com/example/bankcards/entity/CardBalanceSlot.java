@@ -0,0 +1,41 @@
+package com.example.bankcards.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+/**
+ * Часть баланса «горячей» карты. Баланс такой карты — сумма cards.balance и всех её слотов;
+ * переводы блокируют один слот вместо строки карты.
+ */
+@Entity
+@Table(name = "card_balance_slots",
+        uniqueConstraints = @UniqueConstraint(name = "uq_card_balance_slots_card_slot", columnNames = {"card_id", "slot_no"}))
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class CardBalanceSlot {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "card_id", nullable = false)
+    private Long cardId;
+
+    @Column(name = "slot_no", nullable = false)
+    private int slotNo;
+
+    @Column(nullable = false, precision = 19, scale = 2)
+    private Money balance;
+
+    @Version
+    @Column(nullable = false)
+    private Long version;
+
+    public CardBalanceSlot(Long cardId, int slotNo, Money balance) {
+        this.cardId = cardId;
+        this.slotNo = slotNo;
+        this.balance = balance;
+    }
+}
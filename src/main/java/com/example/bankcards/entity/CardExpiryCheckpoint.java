@@ -0,0 +1,36 @@
+package com.example.bankcards.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.*;
+
+import java.time.LocalDate;
+
+/**
+ * Прогресс ночного перевода карт в EXPIRED за конкретную дату.
+ * Обновляется в той же транзакции, что и очередная пачка карт, поэтому после падения
+ * задача продолжает с последнего обработанного id.
+ */
+@Entity
+@Table(name = "card_expiry_checkpoints")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class CardExpiryCheckpoint {
+
+    @Id
+    @Column(name = "run_date")
+    private LocalDate runDate;
+
+    @Column(name = "last_card_id", nullable = false)
+    private Long lastCardId;
+
+    @Column(name = "expired_count", nullable = false)
+    private Long expiredCount;
+
+    @Column(nullable = false)
+    private boolean completed;
+}
@@ -0,0 +1,43 @@
+package com.example.bankcards.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Ключ идемпотентности перевода: хеш запроса, id и время созданной транзакции.
+ * Строка вставляется до перевода (completed = false) с короткой арендой в expires_at и завершается
+ * в одной транзакции с ним; после завершения expires_at продлевается на полный срок хранения ключа.
+ */
+@Entity
+@Table(name = "idempotency_keys", indexes = @Index(name = "idx_idempotency_keys_expires_at", columnList = "expires_at"))
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class IdempotencyKey {
+
+    @Id
+    @Column(name = "idempotency_key", length = 320)
+    private String key;
+
+    @Column(name = "request_hash", nullable = false, length = 64)
+    private String requestHash;
+
+    // Кто держит незавершённый резерв: завершить ключ может только он
+    @Column(name = "reservation_id", length = 36)
+    private String reservationId;
+
+    @Column(name = "transaction_id")
+    private Integer transactionId;
+
+    @Column(name = "transaction_timestamp")
+    private LocalDateTime transactionTimestamp;
+
+    @Column(nullable = false)
+    private boolean completed;
+
+    @Column(name = "expires_at", nullable = false)
+    private LocalDateTime expiresAt;
+}
@@ -27,6 +27,10 @@ public class User implements UserDetails {
     @Column(nullable = false)
     private String password;
 
+    // Версия выданных токенов (claim ver): увеличивается при изменении и удалении пользователя
+    @Column(name = "token_version", nullable = false)
+    private long tokenVersion;
+
     @OneToOne(cascade = CascadeType.ALL, optional = false)
     @JoinColumn(name = "role_id", nullable = false)
     private Role role;
@@ -1,9 +1,13 @@
 package com.example.bankcards.exception;
 
 import io.swagger.v3.oas.annotations.Hidden;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.CannotGetJdbcConnectionException;
+import org.springframework.transaction.CannotCreateTransactionException;
 import org.springframework.web.bind.MethodArgumentNotValidException;
-import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.context.request.WebRequest;
@@ -13,7 +17,7 @@ import java.util.HashMap;
 import java.util.Map;
 
 @Hidden
-@ControllerAdvice
+@RestControllerAdvice
 public class GlobalExceptionHandler {
 
     @ResponseStatus(HttpStatus.BAD_REQUEST)
@@ -46,5 +50,50 @@ public class GlobalExceptionHandler {
 
         return response;
     }
-}
 
+    @ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+    @ExceptionHandler({HashingUnavailableException.class, LedgerUnavailableException.class})
+    public Map<String, Object> handleServiceUnavailable(RuntimeException ex, WebRequest request,
+                                                        HttpServletResponse servletResponse) {
+        servletResponse.setHeader(HttpHeaders.RETRY_AFTER, "1");
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("timestamp", LocalDateTime.now());
+        response.put("status", HttpStatus.SERVICE_UNAVAILABLE.value());
+        response.put("error", "Service Unavailable");
+        response.put("message", ex.getMessage());
+        response.put("path", request.getDescription(false).replace("uri=", ""));
+
+        return response;
+    }
+
+    // Соединение не получено за spring.datasource.hikari.connection-timeout: пул исчерпан или БД недоступна
+    @ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+    @ExceptionHandler({CannotCreateTransactionException.class, CannotGetJdbcConnectionException.class})
+    public Map<String, Object> handleConnectionUnavailable(RuntimeException ex, WebRequest request,
+                                                           HttpServletResponse servletResponse) {
+        servletResponse.setHeader(HttpHeaders.RETRY_AFTER, "1");
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("timestamp", LocalDateTime.now());
+        response.put("status", HttpStatus.SERVICE_UNAVAILABLE.value());
+        response.put("error", "Service Unavailable");
+        response.put("message", "Нет свободного соединения с базой данных, повторите запрос позже");
+        response.put("path", request.getDescription(false).replace("uri=", ""));
+
+        return response;
+    }
+
+    @ResponseStatus(HttpStatus.CONFLICT)
+    @ExceptionHandler(IdempotencyKeyConflictException.class)
+    public Map<String, Object> handleIdempotencyKeyConflict(IdempotencyKeyConflictException ex, WebRequest request) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("timestamp", LocalDateTime.now());
+        response.put("status", HttpStatus.CONFLICT.value());
+        response.put("error", "Conflict");
+        response.put("message", ex.getMessage());
+        response.put("path", request.getDescription(false).replace("uri=", ""));
+
+        return response;
+    }
+}
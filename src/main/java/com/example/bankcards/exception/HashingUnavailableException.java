@@ -0,0 +1,7 @@
+package com.example.bankcards.exception;
+
+public class HashingUnavailableException extends RuntimeException {
+    public HashingUnavailableException(String message) {
+        super(message);
+    }
+}
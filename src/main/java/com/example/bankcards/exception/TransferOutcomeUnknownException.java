@@ -0,0 +1,10 @@
+package com.example.bankcards.exception;
+
+/**
+ * Перевод принят журналом, но подтверждение не получено: он мог быть проведён или проведётся позже.
+ */
+public class TransferOutcomeUnknownException extends LedgerUnavailableException {
+    public TransferOutcomeUnknownException(String message) {
+        super(message);
+    }
+}
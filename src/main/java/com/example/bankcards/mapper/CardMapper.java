@@ -5,9 +5,13 @@ import com.example.bankcards.dto.CardResponseDto;
 import com.example.bankcards.dto.CardSearchRequest;
 import com.example.bankcards.dto.CardSearchResponse;
 import com.example.bankcards.entity.Card;
+import com.example.bankcards.entity.Money;
 import org.mapstruct.Mapper;
 import org.mapstruct.Mapping;
 import org.mapstruct.MappingTarget;
+import org.mapstruct.Named;
+
+import java.math.BigDecimal;
 
 @Mapper(componentModel = "spring")
 public interface CardMapper {
@@ -18,7 +22,17 @@ public interface CardMapper {
     @Mapping(target = "maskedCardNumber", expression = "java(maskCardNumber(card.getCardNumber()))")
     CardSearchResponse cardToCardSearchResponse(Card card);
 
+    default Money toMoney(BigDecimal amount) {
+        return amount == null ? null : Money.of(amount);
+    }
+
     default String maskCardNumber(String cardNumber) {
+        return mask(cardNumber);
+    }
+
+    // @Named — чтобы MapStruct не подставлял метод к строковым полям автоматически
+    @Named("mask")
+    static String mask(String cardNumber) {
         if (cardNumber == null || cardNumber.length() < 8) return "****";
         return "****" + cardNumber.substring(cardNumber.length() - 4);
     }
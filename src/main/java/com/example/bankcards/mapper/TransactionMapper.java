@@ -1,13 +1,49 @@
 package com.example.bankcards.mapper;
 
+import com.example.bankcards.dto.TransactionDirection;
+import com.example.bankcards.dto.TransactionRequestDto;
 import com.example.bankcards.dto.TransactionResponseDto;
+import com.example.bankcards.dto.TransactionStatementRow;
+import com.example.bankcards.entity.IdempotencyKey;
 import com.example.bankcards.entity.Transaction;
 import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
 
-@Mapper(componentModel = "spring")
+@Mapper(componentModel = "spring", imports = {CardMapper.class, TransactionDirection.class})
 
 public interface TransactionMapper {
 
-    TransactionResponseDto toDto(Transaction transaction);
+    /**
+     * Строка истории по карте cardId: направление определяется тем, с какой стороны перевода эта карта.
+     */
+    @Mapping(target = "maskedFromCardNumber", expression = "java(CardMapper.mask(row.fromCardNumber()))")
+    @Mapping(target = "maskedToCardNumber", expression = "java(CardMapper.mask(row.toCardNumber()))")
+    @Mapping(target = "direction", expression = "java(cardId.equals(row.fromCardId()) ? TransactionDirection.OUTGOING : TransactionDirection.INCOMING)")
+    TransactionResponseDto toDto(TransactionStatementRow row, Long cardId);
+
+    /**
+     * Только что созданный перевод. Номера карт берутся из запроса: карты в сущности могут быть
+     * незагруженными ссылками, и обращение к номеру стоило бы лишнего запроса.
+     */
+    @Mapping(target = "id", source = "transaction.id")
+    @Mapping(target = "amount", source = "transaction.amount")
+    @Mapping(target = "timestamp", source = "transaction.timestamp")
+    @Mapping(target = "maskedFromCardNumber", expression = "java(CardMapper.mask(request.fromCardNumber()))")
+    @Mapping(target = "maskedToCardNumber", expression = "java(CardMapper.mask(request.toCardNumber()))")
+    @Mapping(target = "direction", expression = "java(TransactionDirection.OUTGOING)")
+    TransactionResponseDto toDto(Transaction transaction, TransactionRequestDto request);
+
+    /**
+     * Повтор завершённого перевода по ключу идемпотентности: id и время берутся из ключа, остальное —
+     * из запроса, совпадающего с исходным по хешу. Строка в transactions для этого не нужна
+     * (при стратегии LEDGER она появляется только после репликации).
+     */
+    @Mapping(target = "id", source = "key.transactionId")
+    @Mapping(target = "timestamp", source = "key.transactionTimestamp")
+    @Mapping(target = "amount", source = "request.amount")
+    @Mapping(target = "maskedFromCardNumber", expression = "java(CardMapper.mask(request.fromCardNumber()))")
+    @Mapping(target = "maskedToCardNumber", expression = "java(CardMapper.mask(request.toCardNumber()))")
+    @Mapping(target = "direction", expression = "java(TransactionDirection.OUTGOING)")
+    TransactionResponseDto toDto(IdempotencyKey key, TransactionRequestDto request);
 
 }
@@ -0,0 +1,42 @@
+package com.example.bankcards.repository;
+
+import com.example.bankcards.entity.CardBalanceSlot;
+import com.example.bankcards.entity.Money;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+public interface CardBalanceSlotRepository extends JpaRepository<CardBalanceSlot, Long> {
+
+    /**
+     * Номера слотов по возрастанию, в которых хватает средств на списание. Читается без блокировки,
+     * поэтому после блокировки выбранного слота остаток нужно проверить ещё раз.
+     */
+    @Query("select s.slotNo from CardBalanceSlot s where s.cardId = :cardId and s.balance >= :amount order by s.slotNo")
+    List<Integer> findSlotNosWithFunds(@Param("cardId") Long cardId, @Param("amount") Money amount);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select s from CardBalanceSlot s where s.cardId = :cardId and s.slotNo = :slotNo")
+    Optional<CardBalanceSlot> findForUpdate(@Param("cardId") Long cardId, @Param("slotNo") int slotNo);
+
+    /**
+     * Все слоты карты с блокировкой в порядке номеров — в том же порядке их блокируют переводы.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select s from CardBalanceSlot s where s.cardId = :cardId order by s.slotNo")
+    List<CardBalanceSlot> findAllForUpdate(@Param("cardId") Long cardId);
+
+    @Query("select distinct s.cardId from CardBalanceSlot s order by s.cardId")
+    List<Long> findSlottedCardIds();
+
+    @Modifying
+    @Query(value = "update card_balance_slots set balance = 0, version = version + 1 where card_id in (:cardIds)", nativeQuery = true)
+    int zeroByCardIds(@Param("cardIds") Collection<Long> cardIds);
+}
@@ -0,0 +1,9 @@
+package com.example.bankcards.repository;
+
+import com.example.bankcards.entity.CardExpiryCheckpoint;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.time.LocalDate;
+
+public interface CardExpiryCheckpointRepository extends JpaRepository<CardExpiryCheckpoint, LocalDate> {
+}
@@ -0,0 +1,10 @@
+package com.example.bankcards.repository;
+
+/**
+ * Id карты и число её слотов баланса; 0 слотов — баланс целиком в строке cards.
+ */
+public interface CardRef {
+    Long getId();
+
+    int getBalanceSlots();
+}
@@ -1,10 +1,22 @@
 package com.example.bankcards.repository;
 
+import com.example.bankcards.dto.CardBalanceSnapshot;
+import com.example.bankcards.dto.CardSearchResponse;
 import com.example.bankcards.entity.Card;
 import com.example.bankcards.entity.enums.CardStatus;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -12,4 +24,112 @@ public interface CardRepository extends JpaRepository <Card, Long>,
         JpaSpecificationExecutor<Card> {
     Optional<Card> findByCardNumber(String cardNumber);
     List<Card> findByStatus(CardStatus status);
+
+    String CARD_SUMMARY_SELECT = """
+            select new com.example.bankcards.dto.CardSearchResponse(
+                c.id,
+                case when length(c.cardNumber) < 8 then '****'
+                     else concat('****', substring(c.cardNumber, length(c.cardNumber) - 3, 4)) end,
+                cast(c.status as String),
+                c.balance + coalesce((select sum(s.balance) from CardBalanceSlot s where s.cardId = c.id), 0),
+                c.expirationDate)
+            from Card c
+            """;
+
+    String CARD_SUMMARY_FILTER = """
+            where c.owner.id = :ownerId
+              and (:fragment is null or c.cardNumber like concat('%', :fragment, '%'))
+              and (:status is null or c.status = :status)
+            """;
+
+    /**
+     * Карты владельца сразу в виде CardSearchResponse: выбираются только пять нужных столбцов,
+     * номер маскируется в запросе, сущности Card не создаются.
+     */
+    @Query(value = CARD_SUMMARY_SELECT + CARD_SUMMARY_FILTER,
+            countQuery = "select count(c) from Card c " + CARD_SUMMARY_FILTER)
+    Page<CardSearchResponse> findCardSummaries(@Param("ownerId") Long ownerId,
+                                               @Param("fragment") String fragment,
+                                               @Param("status") CardStatus status,
+                                               Pageable pageable);
+
+    /**
+     * То же без COUNT: выбирается на одну строку больше размера страницы, чтобы узнать, есть ли следующая.
+     */
+    @Query(CARD_SUMMARY_SELECT + CARD_SUMMARY_FILTER)
+    Slice<CardSearchResponse> findCardSummarySlice(@Param("ownerId") Long ownerId,
+                                                   @Param("fragment") String fragment,
+                                                   @Param("status") CardStatus status,
+                                                   Pageable pageable);
+
+    /**
+     * Поиск по фрагменту номера среди всех карт. В PostgreSQL LIKE '%...%' обслуживается
+     * GIN-индексом idx_cards_card_number_trgm (pg_trgm) для фрагментов от 3 символов, в H2 — просмотром таблицы.
+     */
+    @Query("select c from Card c where c.cardNumber like concat('%', :fragment, '%')")
+    Page<Card> searchByCardNumberFragment(@Param("fragment") String fragment, Pageable pageable);
+
+    @Query("""
+            select new com.example.bankcards.dto.CardBalanceSnapshot(
+                c.id,
+                c.balance + coalesce((select sum(s.balance) from CardBalanceSlot s where s.cardId = c.id), 0),
+                c.status,
+                c.version + coalesce((select sum(s.version) from CardBalanceSlot s where s.cardId = c.id), 0))
+            from Card c where c.id = :id
+            """)
+    Optional<CardBalanceSnapshot> findBalanceSnapshot(@Param("id") Long id);
+
+    /**
+     * Сдвигает версию карты вперёд на delta. Нужна, когда из суммы версий для ETag уходят версии удалённых слотов:
+     * иначе она уменьшится и совпадёт с уже выданным ETag другого баланса. Сначала сбрасывает изменения
+     * в БД и после запроса очищает контекст персистентности — загруженные сущности устаревают.
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query(value = "update cards set version = version + :delta where id = :id", nativeQuery = true)
+    int advanceVersion(@Param("id") Long id, @Param("delta") long delta);
+
+    @Query("select c.id from Card c where c.cardNumber = :cardNumber")
+    Optional<Long> findIdByCardNumber(@Param("cardNumber") String cardNumber);
+
+    /**
+     * Id карты и число её слотов баланса одним запросом, без загрузки и блокировки строки.
+     */
+    @Query("select c.id as id, c.balanceSlots as balanceSlots from Card c where c.cardNumber = :cardNumber")
+    Optional<CardRef> findRefByCardNumber(@Param("cardNumber") String cardNumber);
+
+    /**
+     * Id и число слотов карт пакета по возрастанию id, без блокировки.
+     */
+    @Query("select c.id as id, c.balanceSlots as balanceSlots from Card c where c.cardNumber in :cardNumbers order by c.id")
+    List<CardRef> findRefsByCardNumberIn(@Param("cardNumbers") Collection<String> cardNumbers);
+
+    /**
+     * Загружает карту с блокировкой строки (SELECT ... FOR UPDATE) до конца транзакции.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select c from Card c where c.id = :id")
+    Optional<Card> findByIdForUpdate(@Param("id") Long id);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select c from Card c where c.cardNumber in :cardNumbers order by c.id")
+    List<Card> findAllByCardNumberInForUpdate(@Param("cardNumbers") Collection<String> cardNumbers);
+
+    /**
+     * Очередная пачка id активных карт с истёкшим сроком после afterId, строки блокируются до конца транзакции.
+     * Использует индекс idx_cards_status_expiration_date.
+     */
+    @Query(value = """
+            select id from cards
+            where status = 'ACTIVE' and expiration_date < :today and id > :afterId
+            order by id
+            limit :limit
+            for update
+            """, nativeQuery = true)
+    List<Long> findExpiredActiveIdsForUpdate(@Param("today") LocalDate today,
+                                             @Param("afterId") Long afterId,
+                                             @Param("limit") int limit);
+
+    @Modifying
+    @Query(value = "update cards set status = 'EXPIRED', balance = 0, version = version + 1 where id in (:ids)", nativeQuery = true)
+    int expireByIds(@Param("ids") Collection<Long> ids);
 }
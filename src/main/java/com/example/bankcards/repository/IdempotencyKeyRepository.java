@@ -0,0 +1,56 @@
+package com.example.bankcards.repository;
+
+import com.example.bankcards.entity.IdempotencyKey;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+
+public interface IdempotencyKeyRepository extends JpaRepository<IdempotencyKey, String> {
+
+    /**
+     * Резервирует ключ. Повторная вставка того же ключа падает с DataIntegrityViolationException —
+     * в отличие от save(), который для существующего id выполнил бы merge.
+     */
+    @Modifying
+    @Query(value = """
+            insert into idempotency_keys (idempotency_key, request_hash, reservation_id, completed, expires_at)
+            values (:key, :requestHash, :reservationId, false, :expiresAt)
+            """, nativeQuery = true)
+    int reserve(@Param("key") String key,
+                @Param("requestHash") String requestHash,
+                @Param("reservationId") String reservationId,
+                @Param("expiresAt") LocalDateTime expiresAt);
+
+    /**
+     * Завершает ключ, если резерв всё ещё принадлежит reservationId. 0 — аренда истекла и ключ
+     * перехвачен другим запросом; перевод в этом случае должен быть откачен.
+     */
+    @Modifying
+    @Query("""
+            update IdempotencyKey k
+            set k.completed = true, k.transactionId = :transactionId,
+                k.transactionTimestamp = :transactionTimestamp, k.expiresAt = :expiresAt
+            where k.key = :key and k.reservationId = :reservationId and k.completed = false
+            """)
+    int markCompleted(@Param("key") String key,
+                      @Param("reservationId") String reservationId,
+                      @Param("transactionId") Integer transactionId,
+                      @Param("transactionTimestamp") LocalDateTime transactionTimestamp,
+                      @Param("expiresAt") LocalDateTime expiresAt);
+
+    @Modifying
+    @Query("delete from IdempotencyKey k where k.key = :key and k.reservationId = :reservationId and k.completed = false")
+    int releaseIncomplete(@Param("key") String key, @Param("reservationId") String reservationId);
+
+    // Резерв узла, упавшего до завершения перевода: аренда истекла, ключ можно занять заново
+    @Modifying
+    @Query("delete from IdempotencyKey k where k.key = :key and k.completed = false and k.expiresAt < :now")
+    int releaseAbandoned(@Param("key") String key, @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Query("delete from IdempotencyKey k where k.expiresAt < :now")
+    int deleteExpired(@Param("now") LocalDateTime now);
+}
@@ -1,12 +1,121 @@
 package com.example.bankcards.repository;
 
-import com.example.bankcards.entity.Card;
+import com.example.bankcards.dto.TransactionStatementRow;
+import com.example.bankcards.entity.Money;
 import com.example.bankcards.entity.Transaction;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
 import java.util.List;
-import java.util.Optional;
+import java.util.stream.Stream;
 
 public interface TransactionRepository extends JpaRepository<Transaction, Long> {
-    List<Transaction> findByFromCardOrToCard(Card fromCard, Card toCard);
+
+    String ROW_SELECT = """
+            select new com.example.bankcards.dto.TransactionStatementRow(
+                t.id, t.timestamp, f.id, f.cardNumber, r.id, r.cardNumber, t.amount)
+            from Transaction t join t.fromCard f join t.toCard r
+            """;
+
+    // Необязательные фильтры истории и курсор (timestamp, id) последней отданной строки.
+    // Пустые даты приводятся к типу явно: драйвер PostgreSQL передаёт null-временную метку без типа
+    String HISTORY_FILTER = """
+              and (cast(:from as LocalDateTime) is null or t.timestamp >= :from)
+              and (cast(:to as LocalDateTime) is null or t.timestamp < :to)
+              and (:minAmount is null or t.amount >= :minAmount)
+              and (:maxAmount is null or t.amount <= :maxAmount)
+              and (cast(:cursorTimestamp as LocalDateTime) is null or t.timestamp < :cursorTimestamp
+                   or (t.timestamp = :cursorTimestamp and t.id < :cursorId))
+            order by t.timestamp desc, t.id desc
+            """;
+
+    /**
+     * Исходящие переводы карты, новые первыми. Идёт по индексу (from_card_id, timestamp, id)
+     * и сразу собирает плоские строки с номерами обеих карт — сущности в контекст не загружаются.
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true"))
+    @Query(ROW_SELECT + "where f.id = :cardId" + HISTORY_FILTER)
+    List<TransactionStatementRow> findOutgoingHistory(@Param("cardId") Long cardId,
+                                                      @Param("from") LocalDateTime from,
+                                                      @Param("to") LocalDateTime to,
+                                                      @Param("minAmount") Money minAmount,
+                                                      @Param("maxAmount") Money maxAmount,
+                                                      @Param("cursorTimestamp") LocalDateTime cursorTimestamp,
+                                                      @Param("cursorId") Integer cursorId,
+                                                      Limit limit);
+
+    /**
+     * Входящие переводы карты, новые первыми; индекс (to_card_id, timestamp, id).
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true"))
+    @Query(ROW_SELECT + "where r.id = :cardId" + HISTORY_FILTER)
+    List<TransactionStatementRow> findIncomingHistory(@Param("cardId") Long cardId,
+                                                      @Param("from") LocalDateTime from,
+                                                      @Param("to") LocalDateTime to,
+                                                      @Param("minAmount") Money minAmount,
+                                                      @Param("maxAmount") Money maxAmount,
+                                                      @Param("cursorTimestamp") LocalDateTime cursorTimestamp,
+                                                      @Param("cursorId") Integer cursorId,
+                                                      Limit limit);
+
+    /**
+     * Все транзакции карты в хронологическом порядке. Строки читаются с сервера порциями по fetch size,
+     * поэтому поток нужно потреблять внутри транзакции и закрывать после использования.
+     */
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query(ROW_SELECT + """
+            where f.id = :cardId or r.id = :cardId
+            order by t.timestamp, t.id
+            """)
+    Stream<TransactionStatementRow> streamStatement(@Param("cardId") Long cardId);
+
+    /**
+     * Списание, зачисление и запись транзакции за один запрос. Обе карты блокируются
+     * в порядке возрастания id, списание проходит только при достаточном балансе и статусе ACTIVE.
+     * Карты в режиме слотов запрос не трогает и не блокирует: результат будет пустым.
+     * Если transactionId = null, вызывающая сторона обязана откатить транзакцию или провести перевод иначе.
+     */
+    @Query(value = """
+            WITH locked AS (
+                SELECT id, card_number FROM cards
+                WHERE card_number IN (:fromCardNumber, :toCardNumber)
+                  AND NOT EXISTS (SELECT 1 FROM cards h
+                                  WHERE h.card_number IN (:fromCardNumber, :toCardNumber) AND h.balance_slots > 0)
+                ORDER BY id
+                FOR UPDATE
+            ), debit AS (
+                UPDATE cards c SET balance = c.balance - :amount, version = c.version + 1
+                FROM locked l
+                WHERE c.id = l.id AND l.card_number = :fromCardNumber
+                  AND c.balance >= :amount AND c.status = 'ACTIVE'
+                RETURNING c.id
+            ), credit AS (
+                UPDATE cards c SET balance = c.balance + :amount, version = c.version + 1
+                FROM locked l
+                WHERE c.id = l.id AND l.card_number = :toCardNumber
+                  AND c.status = 'ACTIVE' AND EXISTS (SELECT 1 FROM debit)
+                RETURNING c.id
+            ), inserted AS (
+                INSERT INTO transactions (from_card_id, to_card_id, amount, timestamp)
+                SELECT debit.id, credit.id, :amount, :timestamp FROM debit CROSS JOIN credit
+                RETURNING id
+            )
+            SELECT (SELECT id FROM debit) AS "fromCardId",
+                   (SELECT id FROM credit) AS "toCardId",
+                   (SELECT id FROM inserted) AS "transactionId"
+            """, nativeQuery = true)
+    TransferOutcome transferAtomically(@Param("fromCardNumber") String fromCardNumber,
+                                       @Param("toCardNumber") String toCardNumber,
+                                       @Param("amount") BigDecimal amount,
+                                       @Param("timestamp") LocalDateTime timestamp);
 }
@@ -0,0 +1,12 @@
+package com.example.bankcards.repository;
+
+/**
+ * Результат атомарного перевода: null в поле означает, что соответствующий шаг не затронул ни одной строки.
+ */
+public interface TransferOutcome {
+    Long getFromCardId();
+
+    Long getToCardId();
+
+    Integer getTransactionId();
+}
@@ -1,11 +1,15 @@
 package com.example.bankcards.security;
 
+import io.jsonwebtoken.Claims;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
@@ -24,16 +28,27 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
     private final JwtTokenProvider jwtTokenProvider;
     private final UserDetailsService userDetailsService;
+    private final TokenDenyList tokenDenyList;
+    private final MeterRegistry meterRegistry;
+
+    // DATABASE — принципал загружается через (кешируемый) UserDetailsService,
+    // TOKEN — строится из подписанных claims без обращения к БД
+    @Value("${app.security.principal-source:TOKEN}")
+    private PrincipalSource principalSource;
+
+    public enum PrincipalSource {
+        DATABASE,
+        TOKEN
+    }
 
     @Override
     protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
             throws ServletException, IOException {
         try {
             String jwt = parseJwt(request);
-            if (jwt != null && jwtTokenProvider.validateToken(jwt)) {
-                String username = jwtTokenProvider.getUsernameFromToken(jwt);
-                UserDetails userDetails = userDetailsService.loadUserByUsername(username);
-                
+            Claims claims = jwt != null ? validate(jwt) : null;
+            UserDetails userDetails = claims != null ? loadPrincipal(claims) : null;
+            if (userDetails != null) {
                 UsernamePasswordAuthenticationToken authentication = new UsernamePasswordAuthenticationToken(
                         userDetails, null, userDetails.getAuthorities());
                 authentication.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
@@ -47,6 +62,44 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         filterChain.doFilter(request, response);
     }
 
+    // security.jwt.validation{outcome=valid|invalid} — проверка подписи и срока (или попадание в кеш проверенных токенов)
+    private Claims validate(String jwt) {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        Claims claims = jwtTokenProvider.parse(jwt).orElse(null);
+        sample.stop(meterRegistry.timer("security.jwt.validation", "outcome", claims != null ? "valid" : "invalid"));
+        return claims;
+    }
+
+    // security.principal.load{source=token|database} — построение принципала после проверки токена
+    private UserDetails loadPrincipal(Claims claims) {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String source = "database";
+        try {
+            String role = claims.get(JwtTokenProvider.ROLE_CLAIM, String.class);
+            Long userId = claims.get(JwtTokenProvider.USER_ID_CLAIM, Long.class);
+            Long versionClaim = claims.get(JwtTokenProvider.TOKEN_VERSION_CLAIM, Long.class);
+            // Токены без claim ver выпущены до появления версий и считаются версией 0
+            long tokenVersion = versionClaim != null ? versionClaim : 0;
+            if (principalSource == PrincipalSource.TOKEN && role != null && userId != null) {
+                source = "token";
+                if (tokenDenyList.isRevoked(userId, tokenVersion)) {
+                    log.warn("Revoked JWT for user id: {}", userId);
+                    return null;
+                }
+                return new AuthenticatedUser(userId, claims.getSubject(), null, role, tokenVersion);
+            }
+            // Токены, выпущенные до появления claims uid и role, по-прежнему проверяются по БД
+            UserDetails userDetails = userDetailsService.loadUserByUsername(claims.getSubject());
+            if (userDetails instanceof AuthenticatedUser user && tokenVersion < user.tokenVersion()) {
+                log.warn("Revoked JWT for user id: {}", user.id());
+                return null;
+            }
+            return userDetails;
+        } finally {
+            sample.stop(meterRegistry.timer("security.principal.load", "source", source));
+        }
+    }
+
     private String parseJwt(HttpServletRequest request) {
         String headerAuth = request.getHeader("Authorization");
 
@@ -0,0 +1,40 @@
+package com.example.bankcards.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Отзыв токенов без обращения к БД: для пользователя запоминается текущая версия токенов (users.token_version),
+ * токены с меньшим claim ver недействительны. Версия растёт в той же транзакции, что и изменение пользователя,
+ * поэтому токен, выпущенный до отзыва, отклоняется, даже если выпущен в ту же миллисекунду.
+ * Запись хранится не дольше срока жизни токена — более старые токены и так отклоняются по exp.
+ * Список живёт в памяти одного экземпляра приложения; при проверке по БД (principal-source DATABASE)
+ * версия сравнивается с загруженным пользователем.
+ */
+@Component
+@Slf4j
+public class TokenDenyList {
+
+    private final Cache<Long, Long> currentVersions;
+
+    public TokenDenyList(@Value("${app.jwt.expiration:86400000}") long jwtExpirationMs) {
+        this.currentVersions = Caffeine.newBuilder()
+                .expireAfterWrite(Duration.ofMillis(jwtExpirationMs))
+                .build();
+    }
+
+    public void revokeAll(Long userId, long tokenVersion) {
+        log.info("Revoking tokens below version {} for user id: {}", tokenVersion, userId);
+        currentVersions.asMap().merge(userId, tokenVersion, Math::max);
+    }
+
+    public boolean isRevoked(Long userId, long tokenVersion) {
+        Long current = currentVersions.getIfPresent(userId);
+        return current != null && tokenVersion < current;
+    }
+}
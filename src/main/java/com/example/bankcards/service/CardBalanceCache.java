@@ -0,0 +1,105 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.config.CacheConfig;
+import com.example.bankcards.dto.CardBalanceSnapshot;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Collection;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
+
+/**
+ * Кеш баланса и статуса карт по id. Удаление внутри транзакции откладывается до коммита,
+ * поэтому параллельное чтение не вернёт в кеш незафиксированное состояние.
+ * Попадания и промахи публикуются Spring Boot как cache.gets{cache=cardBalances}.
+ * <p>
+ * Промах загружается вне блокировок Caffeine: Cache.get(key, loader) держит монитор ConcurrentHashMap
+ * на время запроса в БД и на Java 21 закрепляет виртуальный поток за несущим. Одновременные промахи
+ * по одной карте ждут одну загрузку; если карту удалили из кеша во время загрузки, результат
+ * возвращается, но не кешируется.
+ */
+@Component
+public class CardBalanceCache {
+
+    private final Cache cache;
+    private final ConcurrentMap<Long, CompletableFuture<CardBalanceSnapshot>> loading = new ConcurrentHashMap<>();
+
+    public CardBalanceCache(CacheManager cacheManager) {
+        this.cache = cacheManager.getCache(CacheConfig.CARD_BALANCES);
+    }
+
+    // Исключение загрузчика (например, карта не найдена) пробрасывается как есть и ничего не кеширует
+    public CardBalanceSnapshot get(Long cardId, Supplier<CardBalanceSnapshot> loader) {
+        CardBalanceSnapshot cached = cache.get(cardId, CardBalanceSnapshot.class);
+        if (cached != null) {
+            return cached;
+        }
+
+        CompletableFuture<CardBalanceSnapshot> load = new CompletableFuture<>();
+        CompletableFuture<CardBalanceSnapshot> inFlight = loading.putIfAbsent(cardId, load);
+        if (inFlight != null) {
+            return await(inFlight);
+        }
+
+        try {
+            CardBalanceSnapshot snapshot = loader.get();
+            loading.computeIfPresent(cardId, (id, current) -> {
+                if (current != load) {
+                    return current;
+                }
+                cache.put(id, snapshot);
+                return null;
+            });
+            load.complete(snapshot);
+            return snapshot;
+        } catch (RuntimeException e) {
+            loading.remove(cardId, load);
+            load.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    public void evict(Long cardId) {
+        afterCommit(() -> evictNow(cardId));
+    }
+
+    public void evictAll(Collection<Long> cardIds) {
+        afterCommit(() -> cardIds.forEach(this::evictNow));
+    }
+
+    private void evictNow(Long cardId) {
+        loading.remove(cardId);
+        cache.evict(cardId);
+    }
+
+    private static void afterCommit(Runnable eviction) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            eviction.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                eviction.run();
+            }
+        });
+    }
+
+    private static CardBalanceSnapshot await(CompletableFuture<CardBalanceSnapshot> inFlight) {
+        try {
+            return inFlight.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw e;
+        }
+    }
+}
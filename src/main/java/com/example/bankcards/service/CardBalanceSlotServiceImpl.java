@@ -0,0 +1,228 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.entity.CardBalanceSlot;
+import com.example.bankcards.entity.Money;
+import com.example.bankcards.exception.CardNotFoundException;
+import com.example.bankcards.exception.InsufficientFundsException;
+import com.example.bankcards.repository.CardBalanceSlotRepository;
+import com.example.bankcards.repository.CardRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.PessimisticLockingFailureException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Режим слотов для «горячих» карт, участвующих в большинстве переводов. Баланс такой карты разбит
+ * на N строк card_balance_slots: списание блокирует один слот, в котором хватает средств, зачисление —
+ * случайный слот, поэтому параллельные переводы по одной карте не ждут друг друга на строке cards.
+ * Баланс карты — cards.balance плюс сумма слотов; фоновая задача выравнивает слоты и переносит в них
+ * то, что попало в cards.balance в обход слотов (зачисления стратегии SQL, гонка с включением режима).
+ * Одиночные переводы (стратегия JPA, а для горячих карт и SQL) списывают через {@link #debit},
+ * пакетные — через {@link #lockAllSlots} и {@link #debitLocked}.
+ * Порядок блокировок: строка карты, затем слоты по возрастанию номера.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class CardBalanceSlotServiceImpl {
+
+    private final CardRepository cardRepository;
+    private final CardBalanceSlotRepository slotRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final CardBalanceCache cardBalanceCache;
+
+    @Value("${app.cards.balance-slots.max:64}")
+    private int maxSlots;
+
+    /**
+     * Включает режим слотов (slots > 0), меняет их число или выключает режим (slots = 0).
+     * Весь баланс сначала собирается в строке карты, затем поровну раскладывается по новым слотам.
+     */
+    @Transactional
+    public void configureSlots(Long cardId, int slots) {
+        if (slots < 0 || slots > maxSlots) {
+            throw new IllegalArgumentException("Число слотов должно быть от 0 до " + maxSlots);
+        }
+
+        Card card = cardRepository.findByIdForUpdate(cardId)
+                .orElseThrow(() -> new CardNotFoundException("Card not found with id: " + cardId));
+        List<CardBalanceSlot> current = slotRepository.findAllForUpdate(cardId);
+
+        Money total = card.getBalance();
+        long retiredVersions = 0;
+        for (CardBalanceSlot slot : current) {
+            total = total.plus(slot.getBalance());
+            retiredVersions += slot.getVersion();
+        }
+        slotRepository.deleteAllInBatch(current);
+
+        card.setBalanceSlots(slots);
+        if (slots == 0) {
+            card.setBalance(total);
+        } else {
+            card.setBalance(Money.ZERO);
+            Money[] shares = split(total, slots);
+            for (int i = 0; i < slots; i++) {
+                slotRepository.save(new CardBalanceSlot(cardId, i, shares[i]));
+            }
+        }
+        // ETag баланса — версия карты плюс сумма версий слотов; новые слоты начинают с 0,
+        // поэтому версия карты забирает версии удалённых, и ETag только растёт
+        cardRepository.advanceVersion(cardId, retiredVersions + 1);
+        cardBalanceCache.evict(cardId);
+
+        log.info("Карта с id {} переведена на {} слот(ов) баланса", cardId, slots);
+    }
+
+    /**
+     * Списание с карты в режиме слотов внутри транзакции перевода. Сначала пробует случайный слот,
+     * в котором хватает средств, и, если его успели опустошить, следующие за ним по номеру;
+     * если таких слотов нет, собирает сумму из строки карты и всех слотов.
+     */
+    public void debit(Long cardId, String cardNumber, Money amount) {
+        List<Integer> candidates = slotRepository.findSlotNosWithFunds(cardId, amount);
+        if (!candidates.isEmpty()) {
+            // Слоты блокируются только по возрастанию номера — в том же порядке, что и при сборе суммы со всех слотов
+            for (int i = ThreadLocalRandom.current().nextInt(candidates.size()); i < candidates.size(); i++) {
+                CardBalanceSlot slot = lockSlot(cardId, candidates.get(i));
+                if (!slot.getBalance().isLessThan(amount)) {
+                    slot.setBalance(slot.getBalance().minus(amount));
+                    return;
+                }
+            }
+            // Слоты опустели между чтением и блокировкой; строку карты после слотов брать нельзя — нарушится порядок блокировок
+            throw new PessimisticLockingFailureException("Слоты карты " + cardId + " изменились, перевод будет повторён");
+        }
+
+        Card card = cardRepository.findByIdForUpdate(cardId)
+                .orElseThrow(() -> new CardNotFoundException("Карта не найдена: id " + cardId));
+        List<CardBalanceSlot> slots = lockAllSlots(cardId);
+
+        Money total = total(card, slots);
+        if (total.isLessThan(amount)) {
+            log.warn("Недостаточно средств на карте {}: баланс {}, требуется {}", cardNumber, total, amount);
+            throw new InsufficientFundsException("Недостаточно средств на карте: " + cardNumber);
+        }
+        debitLocked(card, slots, amount);
+    }
+
+    /**
+     * Зачисление в случайный слот карты внутри транзакции перевода.
+     */
+    public void credit(Long cardId, int slots, Money amount) {
+        CardBalanceSlot slot = lockSlot(cardId, ThreadLocalRandom.current().nextInt(slots));
+        slot.setBalance(slot.getBalance().plus(amount));
+    }
+
+    /**
+     * Блокирует все слоты карты по возрастанию номера. Строка карты к этому моменту должна быть уже заблокирована.
+     */
+    public List<CardBalanceSlot> lockAllSlots(Long cardId) {
+        return slotRepository.findAllForUpdate(cardId);
+    }
+
+    /**
+     * Списание с заблокированных строки карты и всех её слотов: сначала из строки, затем из слотов
+     * по возрастанию номера. Проверка достаточности средств — на вызывающей стороне, через {@link #total}.
+     */
+    public void debitLocked(Card card, List<CardBalanceSlot> slots, Money amount) {
+        Money remaining = amount.minus(card.getBalance().min(amount));
+        card.setBalance(card.getBalance().minus(amount.minus(remaining)));
+        for (CardBalanceSlot slot : slots) {
+            if (remaining.signum() == 0) {
+                break;
+            }
+            Money taken = slot.getBalance().min(remaining);
+            slot.setBalance(slot.getBalance().minus(taken));
+            remaining = remaining.minus(taken);
+        }
+    }
+
+    /**
+     * Зачисление в заблокированный слот с наименьшим остатком, чтобы слоты не расходились до выравнивания.
+     */
+    public void creditLocked(List<CardBalanceSlot> slots, Money amount) {
+        CardBalanceSlot lowest = slots.get(0);
+        for (CardBalanceSlot slot : slots) {
+            if (slot.getBalance().isLessThan(lowest.getBalance())) {
+                lowest = slot;
+            }
+        }
+        lowest.setBalance(lowest.getBalance().plus(amount));
+    }
+
+    // Баланс карты в режиме слотов: строка карты плюс все слоты
+    public static Money total(Card card, List<CardBalanceSlot> slots) {
+        Money total = card.getBalance();
+        for (CardBalanceSlot slot : slots) {
+            total = total.plus(slot.getBalance());
+        }
+        return total;
+    }
+
+    /**
+     * Выравнивает слоты всех карт в режиме слотов, каждую карту — в своей короткой транзакции.
+     */
+    @Scheduled(fixedDelayString = "${app.cards.balance-slots.rebalance-interval:30s}")
+    public void rebalanceAll() {
+        int rebalanced = 0;
+        for (Long cardId : slotRepository.findSlottedCardIds()) {
+            if (Boolean.TRUE.equals(transactionTemplate.execute(status -> rebalance(cardId)))) {
+                rebalanced++;
+            }
+        }
+        if (rebalanced > 0) {
+            log.info("Выровнены слоты баланса {} карт(ы)", rebalanced);
+        }
+    }
+
+    private boolean rebalance(Long cardId) {
+        Card card = cardRepository.findByIdForUpdate(cardId).orElse(null);
+        List<CardBalanceSlot> slots = slotRepository.findAllForUpdate(cardId);
+        if (card == null || slots.isEmpty()) {
+            return false;
+        }
+
+        Money[] shares = split(total(card, slots), slots.size());
+
+        boolean changed = card.getBalance().signum() != 0;
+        for (int i = 0; i < slots.size(); i++) {
+            changed |= !slots.get(i).getBalance().equals(shares[i]);
+        }
+        if (!changed) {
+            return false;
+        }
+
+        card.setBalance(Money.ZERO);
+        for (int i = 0; i < slots.size(); i++) {
+            slots.get(i).setBalance(shares[i]);
+        }
+        cardBalanceCache.evict(cardId);
+        return true;
+    }
+
+    private CardBalanceSlot lockSlot(Long cardId, int slotNo) {
+        // Слотов нет, если режим только что выключили: повтор перевода увидит новое число слотов
+        return slotRepository.findForUpdate(cardId, slotNo)
+                .orElseThrow(() -> new PessimisticLockingFailureException(
+                        "Слот " + slotNo + " карты " + cardId + " не найден, перевод будет повторён"));
+    }
+
+    // Поровну до копейки, остаток — в нулевой слот
+    private static Money[] split(Money total, int parts) {
+        long share = total.minorUnits() / parts;
+        Money[] shares = new Money[parts];
+        Arrays.fill(shares, Money.ofMinor(share));
+        shares[0] = Money.ofMinor(total.minorUnits() - share * (parts - 1));
+        return shares;
+    }
+}
@@ -2,22 +2,33 @@ package com.example.bankcards.service;
 
 import com.example.bankcards.dto.*;
 import com.example.bankcards.entity.Card;
+import com.example.bankcards.entity.CardExpiryCheckpoint;
 import com.example.bankcards.entity.enums.CardStatus;
 import com.example.bankcards.exception.CardNotFoundException;
 import com.example.bankcards.exception.EntityNotFoundException;
 import com.example.bankcards.mapper.CardMapper;
+import com.example.bankcards.repository.CardBalanceSlotRepository;
+import com.example.bankcards.repository.CardExpiryCheckpointRepository;
 import com.example.bankcards.repository.CardRepository;
 import com.example.bankcards.repository.UserRepository;
+import com.example.bankcards.service.ledger.LedgerEngine;
+import com.example.bankcards.service.retry.RetryOnConflict;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
-import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.domain.Slice;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
-import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.util.List;
 
@@ -29,27 +40,37 @@ public class CardServiceImpl {
     private final CardRepository cardRepository;
     private final CardMapper cardMapper;
     private final UserRepository userRepository;
+    private final CardExpiryCheckpointRepository checkpointRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final MeterRegistry meterRegistry;
+    private final CardBalanceCache cardBalanceCache;
+    private final CardBalanceSlotRepository slotRepository;
+    private final ObjectProvider<LedgerEngine> ledgerEngine;
+
+    private static final int MIN_SEARCH_FRAGMENT = 3;
+
+    @Value("${app.cards.expiry.chunk-size:1000}")
+    private int expiryChunkSize;
 
     public CardResponseDto createCard(CardRequestDto cardRequestDto) {
         log.info("Creating new card");
         return cardMapper.cardToCardResponseDto(cardRepository.save(cardMapper.requestToCard(cardRequestDto)));
     }
 
-    @Transactional(readOnly = true)
-    public BigDecimal getCardBalance(Long cardId) {
-        Card card = cardRepository.findById(cardId)
+    public CardBalanceSnapshot getCardBalance(Long cardId) {
+        CardBalanceSnapshot snapshot = cardBalanceCache.get(cardId, () -> cardRepository.findBalanceSnapshot(cardId)
                 .orElseThrow(() -> new EntityNotFoundException(
-                        String.format("Карта с id %d не найдена", cardId)));
+                        String.format("Карта с id %d не найдена", cardId))));
 
-        if (card.getStatus() == CardStatus.BLOCKED) {
+        if (snapshot.status() == CardStatus.BLOCKED) {
             throw new IllegalStateException("Нельзя получить баланс заблокированной карты");
         }
 
-        if (card.getStatus() == CardStatus.EXPIRED) {
+        if (snapshot.status() == CardStatus.EXPIRED) {
             throw new IllegalStateException("Нельзя получить баланс просроченной карты");
         }
 
-        return card.getBalance();
+        return snapshot;
     }
 
     public CardResponseDto getCardById(Long id) {
@@ -60,27 +81,67 @@ public class CardServiceImpl {
 
     @Transactional(readOnly = true)
     public Page<CardSearchResponse> getUserCards(Long userId, CardSearchRequest request, Pageable pageable) {
-        Specification<Card> spec = Specification.where((root, query, cb) ->
-                cb.equal(root.get("owner").get("id"), userId));
+        Page<CardSearchResponse> cards = cardRepository.findCardSummaries(
+                userId, searchFragment(request), request.status(), pageable);
 
-        if (request.searchTerm() != null && !request.searchTerm().isEmpty()) {
-            spec = spec.and((root, query, cb) ->
-                    cb.like(root.get("cardNumber"), "%" + request.searchTerm() + "%"));
-        }
+        log.info("Запрошены карты пользователя с id {}. Найдено {} карт",
+                userId, cards.getTotalElements());
 
-        if (request.status() != null) {
-            spec = spec.and((root, query, cb) ->
-                    cb.equal(root.get("status"), request.status()));
+        return cards;
+    }
+
+    /**
+     * Карты пользователя без подсчёта общего количества.
+     */
+    @Transactional(readOnly = true)
+    public Slice<CardSearchResponse> getUserCardsSlice(Long userId, CardSearchRequest request, Pageable pageable) {
+        Slice<CardSearchResponse> cards = cardRepository.findCardSummarySlice(
+                userId, searchFragment(request), request.status(), pageable);
+
+        log.info("Запрошены карты пользователя с id {}. Страница {}, карт на странице {}",
+                userId, pageable.getPageNumber(), cards.getNumberOfElements());
+
+        return cards;
+    }
+
+    private String searchFragment(CardSearchRequest request) {
+        if (request.searchTerm() == null || request.searchTerm().isEmpty()) {
+            return null;
         }
+        return normalizeCardNumberFragment(request.searchTerm());
+    }
 
-        Page<Card> cards = cardRepository.findAll(spec, pageable);
+    /**
+     * Поиск по фрагменту номера среди всех карт (для администратора).
+     * Фрагмент короче MIN_SEARCH_FRAGMENT не покрывается триграммным индексом и отклоняется.
+     */
+    @Transactional(readOnly = true)
+    public Page<CardSearchResponse> searchCards(String number, Pageable pageable) {
+        String fragment = normalizeCardNumberFragment(number);
+        if (fragment.length() < MIN_SEARCH_FRAGMENT) {
+            throw new IllegalArgumentException(
+                    String.format("Для поиска укажите не менее %d цифр номера карты", MIN_SEARCH_FRAGMENT));
+        }
 
-        log.info("Запрошены карты пользователя с id {}. Найдено {} карт",
-                userId, cards.getTotalElements());
+        Page<Card> cards = cardRepository.searchByCardNumberFragment(fragment, pageable);
+        log.info("Поиск карт по фрагменту номера. Найдено {} карт", cards.getTotalElements());
 
         return cards.map(cardMapper::cardToCardSearchResponse);
     }
 
+    /**
+     * Номер карты хранится только цифрами: пробелы и дефисы из запроса убираются, остальное отклоняется,
+     * чтобы в шаблон LIKE не попадали '%' и '_'.
+     */
+    static String normalizeCardNumberFragment(String term) {
+        String fragment = term == null ? "" : term.replaceAll("[\\s-]", "");
+        if (!fragment.chars().allMatch(Character::isDigit)) {
+            throw new IllegalArgumentException("Номер карты для поиска может содержать только цифры");
+        }
+        return fragment;
+    }
+
+    @RetryOnConflict
     @Transactional
     public CardResponseDto changeCardStatus(Long cardId, StatusChangeRequest request) {
         CardStatus newStatus;
@@ -109,45 +170,90 @@ public class CardServiceImpl {
 
         card.setStatus(newStatus);
         Card updatedCard = cardRepository.save(card);
+        cardBalanceCache.evict(cardId);
+        invalidateLedgerAfterCommit(cardId);
 
         log.info("Изменен статус карты. ID карты: {}, Новый статус: {}", cardId, newStatus);
 
         return cardMapper.cardToCardResponseDto(updatedCard);
     }
 
+    // Журнал читает карту из БД отдельным соединением, поэтому новый статус он увидит только после коммита
+    private void invalidateLedgerAfterCommit(Long cardId) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            ledgerEngine.ifAvailable(engine -> engine.invalidate(List.of(cardId)));
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                ledgerEngine.ifAvailable(engine -> engine.invalidate(List.of(cardId)));
+            }
+        });
+    }
+
     public void deleteById(Long id) {
         log.info("Deleting card with id: {}", id);
         if (cardRepository.existsById(id)) {
             cardRepository.deleteById(id);
+            cardBalanceCache.evict(id);
+            ledgerEngine.ifAvailable(engine -> engine.invalidate(List.of(id)));
         } else throw new CardNotFoundException("Card not found with id: " + id);
     }
 
-    @Scheduled(cron = "0 0 0 * * *")
+    /**
+     * Переводит просроченные активные карты в EXPIRED пачками по chunkSize, каждая пачка — отдельная транзакция.
+     * Контрольная точка за текущую дату сохраняется вместе с пачкой, поэтому повторный запуск после падения
+     * продолжает с последней обработанной карты, а завершённый запуск не выполняется второй раз.
+     */
+    @Scheduled(cron = "${app.cards.expiry.cron:0 0 0 * * *}")
     public void updateExpiredCardStatuses() {
         LocalDate today = LocalDate.now();
-        List<Card> activeCards = cardRepository.findByStatus(CardStatus.ACTIVE);
+        CardExpiryCheckpoint checkpoint = transactionTemplate.execute(status -> checkpointRepository.findById(today)
+                .orElseGet(() -> checkpointRepository.save(new CardExpiryCheckpoint(today, 0L, 0L, false))));
 
-        if (activeCards.isEmpty()) {
-            log.info("No active cards found to check.");
+        if (checkpoint.isCompleted()) {
+            log.info("Card expiry for {} already completed: {} card(s) expired.", today, checkpoint.getExpiredCount());
             return;
         }
+        if (checkpoint.getLastCardId() > 0) {
+            log.info("Resuming card expiry for {} after card ID={} ({} already expired).",
+                    today, checkpoint.getLastCardId(), checkpoint.getExpiredCount());
+        }
 
-        List<Card> expiredCards = activeCards.stream()
-                .filter(card -> card.getExpirationDate().isBefore(today))
-                .peek(card -> {
-                    card.setStatus(CardStatus.EXPIRED);
-                    card.setBalance(BigDecimal.ZERO);
-                    log.warn("Card ID={} expired on {} — marked as EXPIRED and balance set to 0.",
-                            card.getId(), card.getExpirationDate());
-                })
-                .toList();
-
-        if (expiredCards.isEmpty()) {
-            log.info("No cards expired today.");
-            return;
+        Timer.Sample sample = Timer.start(meterRegistry);
+        List<Long> expiredIds;
+        do {
+            expiredIds = transactionTemplate.execute(status -> expireNextChunk(today));
+            // Обнулённые балансы должен увидеть и журнал переводов, если он включён
+            List<Long> expired = expiredIds;
+            ledgerEngine.ifAvailable(engine -> engine.invalidate(expired));
+        } while (!expiredIds.isEmpty());
+        sample.stop(meterRegistry.timer("cards.expiry.duration"));
+
+        log.info("Card expiry for {} completed: {} card(s) expired.",
+                today, checkpointRepository.findById(today).map(CardExpiryCheckpoint::getExpiredCount).orElse(0L));
+    }
+
+    private List<Long> expireNextChunk(LocalDate today) {
+        CardExpiryCheckpoint checkpoint = checkpointRepository.findById(today).orElseThrow();
+        List<Long> ids = cardRepository.findExpiredActiveIdsForUpdate(today, checkpoint.getLastCardId(), expiryChunkSize);
+
+        if (ids.isEmpty()) {
+            checkpoint.setCompleted(true);
+            return ids;
         }
 
-        cardRepository.saveAll(expiredCards);
-        log.info("Updated {} expired card(s).", expiredCards.size());
+        cardRepository.expireByIds(ids);
+        slotRepository.zeroByCardIds(ids);
+        cardBalanceCache.evictAll(ids);
+        checkpoint.setLastCardId(ids.get(ids.size() - 1));
+        checkpoint.setExpiredCount(checkpoint.getExpiredCount() + ids.size());
+
+        meterRegistry.counter("cards.expiry.expired").increment(ids.size());
+        meterRegistry.counter("cards.expiry.chunks").increment();
+        log.info("Expired {} card(s), last card ID={}, {} in total for {}.",
+                ids.size(), checkpoint.getLastCardId(), checkpoint.getExpiredCount(), today);
+        return ids;
     }
 }
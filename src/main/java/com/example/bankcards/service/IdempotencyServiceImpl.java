@@ -0,0 +1,232 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.config.CacheConfig;
+import com.example.bankcards.dto.TransactionRequestDto;
+import com.example.bankcards.dto.TransactionResponseDto;
+import com.example.bankcards.entity.IdempotencyKey;
+import com.example.bankcards.exception.IdempotencyKeyConflictException;
+import com.example.bankcards.exception.TransferOutcomeUnknownException;
+import com.example.bankcards.mapper.TransactionMapper;
+import com.example.bankcards.repository.IdempotencyKeyRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Переводы с заголовком Idempotency-Key. Повтор с тем же ключом и тем же телом возвращает сохранённый
+ * результат и не выполняет перевод повторно; тот же ключ с другим телом отклоняется.
+ * Ключ резервируется строкой в idempotency_keys до перевода, завершённые ответы дополнительно
+ * держатся в локальном кеше. Дубликаты, пришедшие во время выполнения, ждут его результата.
+ * Незавершённый резерв живёт только app.idempotency.lease: если узел упал после резерва,
+ * повтор запроса по истечении аренды занимает ключ заново.
+ */
+@Service
+@Slf4j
+public class IdempotencyServiceImpl {
+
+    private static final long POLL_INTERVAL_MS = 50;
+
+    private final IdempotencyKeyRepository idempotencyKeyRepository;
+    private final TransactionServiceImpl transactionService;
+    private final TransactionMapper transactionMapper;
+    private final TransactionTemplate transactionTemplate;
+    private final Cache completedResponses;
+    private final ConcurrentMap<String, InFlight> inFlight = new ConcurrentHashMap<>();
+
+    @Value("${app.idempotency.ttl:24h}")
+    private Duration ttl;
+
+    @Value("${app.idempotency.lease:30s}")
+    private Duration lease;
+
+    @Value("${app.idempotency.wait-timeout:10s}")
+    private Duration waitTimeout;
+
+    public IdempotencyServiceImpl(IdempotencyKeyRepository idempotencyKeyRepository,
+                                  TransactionServiceImpl transactionService,
+                                  TransactionMapper transactionMapper,
+                                  TransactionTemplate transactionTemplate,
+                                  CacheManager cacheManager) {
+        this.idempotencyKeyRepository = idempotencyKeyRepository;
+        this.transactionService = transactionService;
+        this.transactionMapper = transactionMapper;
+        this.transactionTemplate = transactionTemplate;
+        this.completedResponses = cacheManager.getCache(CacheConfig.IDEMPOTENT_RESPONSES);
+    }
+
+    public TransactionResponseDto createTransfer(String username, String idempotencyKey, TransactionRequestDto request) {
+        if (idempotencyKey.isBlank() || idempotencyKey.length() > 255) {
+            throw new IllegalArgumentException("Idempotency-Key должен содержать от 1 до 255 символов");
+        }
+
+        // Ключи разных пользователей не пересекаются
+        String key = username + ":" + idempotencyKey;
+        String requestHash = requestHash(request);
+
+        CompletedResponse cached = completedResponses.get(key, CompletedResponse.class);
+        if (cached != null) {
+            checkSameRequest(cached.requestHash(), requestHash);
+            log.info("Повтор перевода по ключу идемпотентности, возвращён сохранённый результат");
+            return cached.response();
+        }
+
+        InFlight mine = new InFlight(requestHash, new CompletableFuture<>());
+        InFlight running = inFlight.putIfAbsent(key, mine);
+        if (running != null) {
+            checkSameRequest(running.requestHash(), requestHash);
+            return await(running.result());
+        }
+
+        try {
+            TransactionResponseDto response = execute(key, requestHash, request);
+            mine.result().complete(response);
+            return response;
+        } catch (RuntimeException e) {
+            mine.result().completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, mine);
+        }
+    }
+
+    @Scheduled(cron = "${app.idempotency.purge-cron:0 */15 * * * *}")
+    @Transactional
+    public void purgeExpiredKeys() {
+        int deleted = idempotencyKeyRepository.deleteExpired(LocalDateTime.now());
+        if (deleted > 0) {
+            log.info("Удалено {} просроченных ключей идемпотентности", deleted);
+        }
+    }
+
+    private TransactionResponseDto execute(String key, String requestHash, TransactionRequestDto request) {
+        String reservationId = UUID.randomUUID().toString();
+        while (!reserve(key, requestHash, reservationId)) {
+            IdempotencyKey stored = idempotencyKeyRepository.findById(key).orElse(null);
+            if (stored == null) {
+                continue; // ключ освобождён после неудачной попытки — резервируем заново
+            }
+            checkSameRequest(stored.getRequestHash(), requestHash);
+            if (!stored.isCompleted() && stored.getExpiresAt().isBefore(LocalDateTime.now())) {
+                log.warn("Аренда резерва ключа идемпотентности истекла, ключ занимается заново");
+                transactionTemplate.executeWithoutResult(status ->
+                        idempotencyKeyRepository.releaseAbandoned(key, LocalDateTime.now()));
+                continue;
+            }
+            return awaitStored(key, stored, request);
+        }
+
+        try {
+            TransactionResponseDto response = transactionService.createTransfer(request, key, reservationId);
+            completedResponses.put(key, new CompletedResponse(requestHash, response));
+            return response;
+        } catch (TransferOutcomeUnknownException e) {
+            // Перевод мог пройти: ключ остаётся зарезервированным до конца аренды, а повтор после неё
+            // получит от журнала переводов результат исходной команды вместо второго списания
+            log.warn("Результат перевода по ключу идемпотентности неизвестен, ключ не освобождается");
+            throw e;
+        } catch (RuntimeException e) {
+            // Перевод не выполнен: ключ освобождается, клиент может повторить запрос
+            transactionTemplate.executeWithoutResult(status ->
+                    idempotencyKeyRepository.releaseIncomplete(key, reservationId));
+            throw e;
+        }
+    }
+
+    private boolean reserve(String key, String requestHash, String reservationId) {
+        try {
+            transactionTemplate.executeWithoutResult(status ->
+                    idempotencyKeyRepository.reserve(key, requestHash, reservationId, LocalDateTime.now().plus(lease)));
+            return true;
+        } catch (DataIntegrityViolationException e) {
+            return false;
+        }
+    }
+
+    // Ключ занят запросом на другом узле — ждём, пока он завершится
+    private TransactionResponseDto awaitStored(String key, IdempotencyKey stored, TransactionRequestDto request) {
+        long deadline = System.nanoTime() + waitTimeout.toNanos();
+        while (!stored.isCompleted()) {
+            if (System.nanoTime() > deadline) {
+                throw new IdempotencyKeyConflictException("Запрос с этим Idempotency-Key ещё выполняется");
+            }
+            sleep();
+            stored = idempotencyKeyRepository.findById(key)
+                    .orElseThrow(() -> new IdempotencyKeyConflictException(
+                            "Запрос с этим Idempotency-Key завершился ошибкой, повторите его"));
+        }
+
+        // Ответ собирается из ключа: строки перевода в transactions может ещё не быть
+        TransactionResponseDto response = transactionMapper.toDto(stored, request);
+        completedResponses.put(key, new CompletedResponse(stored.getRequestHash(), response));
+        log.info("Повтор перевода по ключу идемпотентности, возвращён сохранённый результат");
+        return response;
+    }
+
+    private TransactionResponseDto await(CompletableFuture<TransactionResponseDto> result) {
+        try {
+            return result.get(waitTimeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            throw new IdempotencyKeyConflictException("Запрос с этим Idempotency-Key ещё выполняется");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IdempotencyKeyConflictException("Ожидание результата запроса прервано");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    private void sleep() {
+        try {
+            Thread.sleep(POLL_INTERVAL_MS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IdempotencyKeyConflictException("Ожидание результата запроса прервано");
+        }
+    }
+
+    private static void checkSameRequest(String storedHash, String requestHash) {
+        if (!storedHash.equals(requestHash)) {
+            throw new IdempotencyKeyConflictException("Idempotency-Key уже использован для другого перевода");
+        }
+    }
+
+    private static String requestHash(TransactionRequestDto request) {
+        String canonical = request.fromCardNumber() + "|" + request.toCardNumber() + "|"
+                + (request.amount() == null ? "" : request.amount().toBigDecimal().stripTrailingZeros().toPlainString());
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(canonical.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private record InFlight(String requestHash, CompletableFuture<TransactionResponseDto> result) {
+    }
+
+    private record CompletedResponse(String requestHash, TransactionResponseDto response) {
+    }
+}
@@ -0,0 +1,115 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.StatementFormat;
+import com.example.bankcards.dto.StatementLine;
+import com.example.bankcards.dto.TransactionDirection;
+import com.example.bankcards.dto.TransactionStatementRow;
+import com.example.bankcards.exception.CardNotFoundException;
+import com.example.bankcards.mapper.CardMapper;
+import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.repository.TransactionRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class StatementServiceImpl {
+
+    private static final String CSV_HEADER = "id,timestamp,direction,counterparty_card,amount";
+
+    private final CardRepository cardRepository;
+    private final TransactionRepository transactionRepository;
+    private final CardMapper cardMapper;
+    private final ObjectMapper objectMapper;
+
+    @Value("${app.transactions.export.flush-every:1000}")
+    private int flushEvery;
+
+    public StatementFormat parseFormat(String format) {
+        try {
+            return StatementFormat.valueOf(format.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Недопустимый формат выписки. Допустимые значения: csv, ndjson");
+        }
+    }
+
+    public Long getCardId(String cardNumber) {
+        return cardRepository.findIdByCardNumber(cardNumber)
+                .orElseThrow(() -> new CardNotFoundException("Карта не найдена"));
+    }
+
+    /**
+     * Пишет выписку по карте в поток построчно. Память не зависит от числа транзакций:
+     * строки читаются курсором и сбрасываются клиенту каждые flushEvery записей.
+     */
+    @Transactional(readOnly = true)
+    public long exportStatement(Long cardId, StatementFormat format, OutputStream out) throws IOException {
+        log.info("Выгрузка выписки по карте id {} в формате {}", cardId, format);
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 64 * 1024);
+        ObjectWriter jsonWriter = objectMapper.writerFor(StatementLine.class);
+        long count = 0;
+
+        if (format == StatementFormat.CSV) {
+            writer.write(CSV_HEADER);
+            writer.write('\n');
+        }
+
+        try (Stream<TransactionStatementRow> rows = transactionRepository.streamStatement(cardId)) {
+            Iterator<TransactionStatementRow> iterator = rows.iterator();
+            while (iterator.hasNext()) {
+                StatementLine line = toLine(iterator.next(), cardId);
+                if (format == StatementFormat.CSV) {
+                    writeCsv(writer, line);
+                } else {
+                    writer.write(jsonWriter.writeValueAsString(line));
+                    writer.write('\n');
+                }
+                if (++count % flushEvery == 0) {
+                    writer.flush();
+                }
+            }
+        }
+
+        writer.flush();
+        log.info("Выгружено {} транзакций по карте id {}", count, cardId);
+        return count;
+    }
+
+    private StatementLine toLine(TransactionStatementRow row, Long cardId) {
+        boolean outgoing = cardId.equals(row.fromCardId());
+        return new StatementLine(
+                row.id(),
+                row.timestamp(),
+                outgoing ? TransactionDirection.OUTGOING : TransactionDirection.INCOMING,
+                cardMapper.maskCardNumber(outgoing ? row.toCardNumber() : row.fromCardNumber()),
+                row.amount());
+    }
+
+    private void writeCsv(Writer writer, StatementLine line) throws IOException {
+        writer.write(String.valueOf(line.id()));
+        writer.write(',');
+        writer.write(line.timestamp().toString());
+        writer.write(',');
+        writer.write(line.direction().name());
+        writer.write(',');
+        writer.write(line.counterpartyCard());
+        writer.write(',');
+        writer.write(line.amount().toString());
+        writer.write('\n');
+    }
+}
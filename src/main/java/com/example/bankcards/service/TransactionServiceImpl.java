@@ -1,23 +1,48 @@
 package com.example.bankcards.service;
 
+import com.example.bankcards.dto.BatchTransferItemResult;
+import com.example.bankcards.dto.BatchTransferMode;
+import com.example.bankcards.dto.BatchTransferResponseDto;
+import com.example.bankcards.dto.TransactionDirection;
+import com.example.bankcards.dto.TransactionHistoryRequest;
+import com.example.bankcards.dto.TransactionPageResponseDto;
 import com.example.bankcards.dto.TransactionRequestDto;
 import com.example.bankcards.dto.TransactionResponseDto;
+import com.example.bankcards.dto.TransactionStatementRow;
 import com.example.bankcards.entity.Card;
+import com.example.bankcards.entity.CardBalanceSlot;
+import com.example.bankcards.entity.Money;
 import com.example.bankcards.entity.Transaction;
+import com.example.bankcards.entity.enums.CardStatus;
 import com.example.bankcards.exception.CardNotFoundException;
-import com.example.bankcards.exception.InsufficientFundsException;
+import com.example.bankcards.exception.IdempotencyKeyConflictException;
 import com.example.bankcards.mapper.TransactionMapper;
+import com.example.bankcards.repository.CardRef;
 import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.repository.IdempotencyKeyRepository;
 import com.example.bankcards.repository.TransactionRepository;
+import com.example.bankcards.service.retry.RetryOnConflict;
+import com.example.bankcards.service.transfer.TransferStrategy;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.PessimisticLockingFailureException;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.interceptor.TransactionAspectSupport;
 
-import java.math.BigDecimal;
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
@@ -29,23 +54,94 @@ public class TransactionServiceImpl {
     private final CardRepository cardRepository;
     private final TransactionRepository transactionRepository;
     private final TransactionMapper transactionMapper;
+    private final List<TransferStrategy> transferStrategies;
+    private final CardBalanceCache cardBalanceCache;
+    private final IdempotencyKeyRepository idempotencyKeyRepository;
+    private final CardBalanceSlotServiceImpl balanceSlotService;
 
-    public List<TransactionResponseDto> getTransactionsByCardId(String cardNumber) {
+    @Value("${app.transactions.history.max-page-size:500}")
+    private int maxPageSize;
+
+    @Value("${app.transfer.strategy:JPA}")
+    private TransferStrategy.Type strategyType;
+
+    @Value("${app.transfer.batch.max-size:5000}")
+    private int maxBatchSize;
+
+    @Value("${app.idempotency.ttl:24h}")
+    private Duration idempotencyTtl;
+
+    @Transactional(readOnly = true)
+    public TransactionPageResponseDto getTransactionsByCardId(String cardNumber, TransactionHistoryRequest request,
+                                                              String cursor, int limit) {
         log.info("Получение транзакций для карты: {}", cardNumber);
-        Card card = cardRepository.findByCardNumber(cardNumber)
+        Long cardId = cardRepository.findIdByCardNumber(cardNumber)
                 .orElseThrow(() -> new CardNotFoundException("Карта не найдена"));
 
-        List<TransactionResponseDto> transactions = transactionRepository.findByFromCardOrToCard(card, card)
-                .stream()
-                .map(transactionMapper::toDto)
+        if (limit < 1 || limit > maxPageSize) {
+            throw new IllegalArgumentException("Размер страницы должен быть от 1 до " + maxPageSize);
+        }
+
+        TransactionCursor after = cursor != null && !cursor.isEmpty() ? TransactionCursor.decode(cursor) : null;
+        LocalDateTime afterTimestamp = after != null ? after.timestamp() : null;
+        Integer afterId = after != null ? after.id() : null;
+
+        // Входящие и исходящие читаются отдельными запросами: каждый идёт по своему индексу
+        // (card_id, timestamp, id) и отдаёт не больше limit + 1 плоских строк без загрузки сущностей
+        List<TransactionStatementRow> rows = new ArrayList<>();
+        if (request.direction() != TransactionDirection.INCOMING) {
+            rows.addAll(transactionRepository.findOutgoingHistory(cardId, request.from(), request.to(),
+                    request.minAmount(), request.maxAmount(), afterTimestamp, afterId, Limit.of(limit + 1)));
+        }
+        if (request.direction() != TransactionDirection.OUTGOING) {
+            rows.addAll(transactionRepository.findIncomingHistory(cardId, request.from(), request.to(),
+                    request.minAmount(), request.maxAmount(), afterTimestamp, afterId, Limit.of(limit + 1)));
+        }
+        rows.sort(Comparator.comparing(TransactionStatementRow::timestamp)
+                .thenComparing(TransactionStatementRow::id).reversed());
+
+        boolean hasNext = rows.size() > limit;
+        List<TransactionStatementRow> page = hasNext ? rows.subList(0, limit) : rows;
+        String nextCursor = null;
+        if (hasNext) {
+            TransactionStatementRow last = page.get(page.size() - 1);
+            nextCursor = new TransactionCursor(last.timestamp(), last.id()).encode();
+        }
+
+        List<TransactionResponseDto> content = page.stream()
+                .map(row -> transactionMapper.toDto(row, cardId))
                 .collect(Collectors.toList());
 
-        log.info("Найдено {} транзакций по карте {}", transactions.size(), cardNumber);
-        return transactions;
+        log.info("Найдено {} транзакций по карте {}", content.size(), cardNumber);
+        return new TransactionPageResponseDto(content, nextCursor, hasNext);
     }
 
+    @RetryOnConflict
     @Transactional
     public TransactionResponseDto createTransfer(TransactionRequestDto transactionRequestDto) {
+        return transfer(transactionRequestDto, null);
+    }
+
+    /**
+     * Перевод с ключом идемпотентности: отметка о завершении ключа фиксируется в той же транзакции,
+     * что и списание, поэтому ключ не может оказаться завершённым без перевода и наоборот.
+     * Если аренда резерва reservationId истекла и ключ занял другой запрос, перевод откатывается.
+     * Журнал переводов (LEDGER) откатить нельзя — он сам возвращает уже проведённый по ключу перевод.
+     */
+    @RetryOnConflict
+    @Transactional
+    public TransactionResponseDto createTransfer(TransactionRequestDto transactionRequestDto, String idempotencyKey,
+                                                 String reservationId) {
+        TransactionResponseDto response = transfer(transactionRequestDto, idempotencyKey);
+        int completed = idempotencyKeyRepository.markCompleted(idempotencyKey, reservationId, response.id(),
+                response.timestamp(), LocalDateTime.now().plus(idempotencyTtl));
+        if (completed == 0) {
+            throw new IdempotencyKeyConflictException("Резерв Idempotency-Key истёк, запрос выполняется повторно");
+        }
+        return response;
+    }
+
+    private TransactionResponseDto transfer(TransactionRequestDto transactionRequestDto, String idempotencyKey) {
         log.info("Создание перевода: {} -> {} на сумму {}",
                 transactionRequestDto.fromCardNumber(), transactionRequestDto.toCardNumber(), transactionRequestDto.amount());
 
@@ -54,44 +150,192 @@ public class TransactionServiceImpl {
             throw new IllegalArgumentException("Нельзя перевести на ту же карту");
         }
 
-        if (transactionRequestDto.amount().compareTo(BigDecimal.ZERO) <= 0) {
+        if (!transactionRequestDto.amount().isPositive()) {
             log.warn("Некорректная сумма перевода: {}", transactionRequestDto.amount());
             throw new IllegalArgumentException("Сумма перевода должна быть положительной");
         }
 
-        Card fromCard = cardRepository.findByCardNumber(transactionRequestDto.fromCardNumber())
-                .orElseThrow(() -> {
-                    log.warn("Карта отправителя не найдена: {}", transactionRequestDto.fromCardNumber());
-                    return new CardNotFoundException("Карта отправителя не найдена: " + transactionRequestDto.fromCardNumber());
-                });
+        Transaction savedTransaction = activeStrategy().transfer(transactionRequestDto, idempotencyKey);
+        cardBalanceCache.evictAll(List.of(savedTransaction.getFromCard().getId(), savedTransaction.getToCard().getId()));
+        log.info("Перевод выполнен успешно: транзакция ID = {}", savedTransaction.getId());
 
-        Card toCard = cardRepository.findByCardNumber(transactionRequestDto.toCardNumber())
-                .orElseThrow(() -> {
-                    log.warn("Карта получателя не найдена: {}", transactionRequestDto.toCardNumber());
-                    return new CardNotFoundException("Карта получателя не найдена: " + transactionRequestDto.toCardNumber());
-                });
+        return transactionMapper.toDto(savedTransaction, transactionRequestDto);
+    }
 
-        if (fromCard.getBalance().compareTo(transactionRequestDto.amount()) < 0) {
-            log.warn("Недостаточно средств на карте {}: баланс {}, требуется {}",
-                    transactionRequestDto.fromCardNumber(), fromCard.getBalance(), transactionRequestDto.amount());
-            throw new InsufficientFundsException("Недостаточно средств на карте: " + transactionRequestDto.fromCardNumber());
+    @RetryOnConflict
+    @Transactional
+    public BatchTransferResponseDto createTransfers(List<TransactionRequestDto> requests, BatchTransferMode mode) {
+        log.info("Создание пакета переводов: {} операций, режим {}", requests.size(), mode);
+
+        if (requests.isEmpty()) {
+            throw new IllegalArgumentException("Пакет переводов пуст");
         }
 
-        fromCard.setBalance(fromCard.getBalance().subtract(transactionRequestDto.amount()));
-        toCard.setBalance(toCard.getBalance().add(transactionRequestDto.amount()));
+        if (strategyType == TransferStrategy.Type.LEDGER) {
+            // Пакет списывает со строк cards напрямую, а балансами владеет журнал переводов
+            throw new IllegalStateException("Пакетные переводы недоступны при стратегии LEDGER");
+        }
 
-        cardRepository.save(fromCard);
-        cardRepository.save(toCard);
+        if (requests.size() > maxBatchSize) {
+            throw new IllegalArgumentException("Пакет не может содержать больше " + maxBatchSize + " переводов");
+        }
 
-        Transaction transaction = new Transaction();
-        transaction.setFromCard(fromCard);
-        transaction.setToCard(toCard);
-        transaction.setAmount(transactionRequestDto.amount());
-        transaction.setTimestamp(LocalDateTime.now());
+        BatchTransferResponseDto response = applyBatch(requests, mode);
+        log.info("Пакет переводов обработан: успешно {}, с ошибкой {}", response.succeeded(), response.failed());
 
-        Transaction savedTransaction = transactionRepository.save(transaction);
-        log.info("Перевод выполнен успешно: транзакция ID = {}", savedTransaction.getId());
+        return response;
+    }
+
+    private BatchTransferResponseDto applyBatch(List<TransactionRequestDto> requests, BatchTransferMode mode) {
+        Set<String> cardNumbers = new HashSet<>();
+        for (TransactionRequestDto request : requests) {
+            if (request != null && request.fromCardNumber() != null && request.toCardNumber() != null) {
+                cardNumbers.add(request.fromCardNumber());
+                cardNumbers.add(request.toCardNumber());
+            }
+        }
+
+        Map<Long, List<CardBalanceSlot>> slots = new HashMap<>();
+        Map<String, Card> cards = lockBatchCards(cardNumbers, slots).stream()
+                .collect(Collectors.toMap(Card::getCardNumber, Function.identity()));
+
+        LocalDateTime timestamp = LocalDateTime.now();
+        BatchTransferItemResult[] results = new BatchTransferItemResult[requests.size()];
+        List<Transaction> transactions = new ArrayList<>();
+        List<Integer> transactionIndexes = new ArrayList<>();
+
+        for (int i = 0; i < requests.size(); i++) {
+            TransactionRequestDto request = requests.get(i);
+            String error = validateBatchItem(request, cards, slots);
+            if (error != null) {
+                results[i] = BatchTransferItemResult.failed(i, error);
+                continue;
+            }
+
+            Card fromCard = cards.get(request.fromCardNumber());
+            Card toCard = cards.get(request.toCardNumber());
+            debit(fromCard, slots.get(fromCard.getId()), request.amount());
+            credit(toCard, slots.get(toCard.getId()), request.amount());
+
+            transactions.add(new Transaction(null, fromCard, toCard, request.amount(), timestamp));
+            transactionIndexes.add(i);
+        }
+
+        int failed = requests.size() - transactions.size();
+
+        if (mode == BatchTransferMode.ATOMIC && failed > 0) {
+            TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
+            for (int index : transactionIndexes) {
+                results[index] = BatchTransferItemResult.rolledBack(index);
+            }
+            return new BatchTransferResponseDto(mode, 0, failed, List.of(results));
+        }
+
+        // Идентификаторы берутся из последовательности, поэтому вставки уходят JDBC-пакетами
+        transactionRepository.saveAll(transactions);
+        cardBalanceCache.evictAll(cards.values().stream().map(Card::getId).toList());
+        for (int i = 0; i < transactions.size(); i++) {
+            int index = transactionIndexes.get(i);
+            results[index] = BatchTransferItemResult.success(index, transactions.get(i).getId());
+        }
+
+        return new BatchTransferResponseDto(mode, transactions.size(), failed, List.of(results));
+    }
+
+    /**
+     * Блокирует карты пакета. Если горячих карт среди них нет, хватает одного IN-запроса в порядке возрастания id.
+     * Иначе карты блокируются по одной в том же порядке, у горячей карты — строка и сразу все её слоты,
+     * как у одиночных переводов: держа строку карты с большим id, пакет не ждёт слот карты с меньшим.
+     */
+    private List<Card> lockBatchCards(Set<String> cardNumbers, Map<Long, List<CardBalanceSlot>> slots) {
+        List<CardRef> refs = cardRepository.findRefsByCardNumberIn(cardNumbers);
+        if (refs.stream().noneMatch(ref -> ref.getBalanceSlots() > 0)) {
+            List<Card> cards = cardRepository.findAllByCardNumberInForUpdate(cardNumbers);
+            if (cards.stream().anyMatch(card -> card.getBalanceSlots() > 0)) {
+                throw new PessimisticLockingFailureException("Карта пакета переведена в режим слотов, пакет будет повторён");
+            }
+            return cards;
+        }
+
+        List<Card> cards = new ArrayList<>();
+        for (CardRef ref : refs) {
+            Card card = cardRepository.findByIdForUpdate(ref.getId()).orElse(null);
+            if (card == null) {
+                continue;
+            }
+            if (card.getBalanceSlots() > 0) {
+                slots.put(card.getId(), balanceSlotService.lockAllSlots(card.getId()));
+            }
+            cards.add(card);
+        }
+        return cards;
+    }
+
+    private void debit(Card card, List<CardBalanceSlot> cardSlots, Money amount) {
+        if (cardSlots != null) {
+            balanceSlotService.debitLocked(card, cardSlots, amount);
+        } else {
+            card.setBalance(card.getBalance().minus(amount));
+        }
+    }
+
+    private void credit(Card card, List<CardBalanceSlot> cardSlots, Money amount) {
+        if (cardSlots != null) {
+            balanceSlotService.creditLocked(cardSlots, amount);
+        } else {
+            card.setBalance(card.getBalance().plus(amount));
+        }
+    }
+
+    private static Money available(Card card, List<CardBalanceSlot> cardSlots) {
+        return cardSlots != null ? CardBalanceSlotServiceImpl.total(card, cardSlots) : card.getBalance();
+    }
+
+    private String validateBatchItem(TransactionRequestDto request, Map<String, Card> cards,
+                                     Map<Long, List<CardBalanceSlot>> slots) {
+        if (request == null || request.fromCardNumber() == null || request.toCardNumber() == null
+                || request.amount() == null) {
+            return "Не заполнены обязательные поля перевода";
+        }
+
+        if (request.fromCardNumber().equals(request.toCardNumber())) {
+            return "Нельзя перевести на ту же карту";
+        }
+
+        if (!request.amount().isPositive()) {
+            return "Сумма перевода должна быть положительной";
+        }
+
+        Card fromCard = cards.get(request.fromCardNumber());
+        if (fromCard == null) {
+            return "Карта отправителя не найдена: " + request.fromCardNumber();
+        }
+
+        Card toCard = cards.get(request.toCardNumber());
+        if (toCard == null) {
+            return "Карта получателя не найдена: " + request.toCardNumber();
+        }
+
+        // Как и одиночный SQL-перевод: заблокированные и просроченные карты не списывают и не принимают
+        if (fromCard.getStatus() != CardStatus.ACTIVE) {
+            return "Карта отправителя неактивна: " + request.fromCardNumber();
+        }
+
+        if (toCard.getStatus() != CardStatus.ACTIVE) {
+            return "Карта получателя неактивна: " + request.toCardNumber();
+        }
+
+        if (available(fromCard, slots.get(fromCard.getId())).isLessThan(request.amount())) {
+            return "Недостаточно средств на карте: " + request.fromCardNumber();
+        }
+
+        return null;
+    }
 
-        return new TransactionResponseDto(savedTransaction);
+    private TransferStrategy activeStrategy() {
+        return transferStrategies.stream()
+                .filter(strategy -> strategy.type() == strategyType)
+                .findFirst()
+                .orElseThrow(() -> new IllegalStateException("Стратегия перевода не найдена: " + strategyType));
     }
 }
@@ -1,5 +1,6 @@
 package com.example.bankcards.service;
 
+import com.example.bankcards.config.CacheConfig;
 import com.example.bankcards.dto.UserRequestDto;
 import com.example.bankcards.dto.UserResponseDto;
 import com.example.bankcards.entity.Role;
@@ -8,11 +9,17 @@ import com.example.bankcards.exception.UserNotFoundException;
 import com.example.bankcards.mapper.UserMapper;
 import com.example.bankcards.repository.RoleRepository;
 import com.example.bankcards.repository.UserRepository;
+import com.example.bankcards.security.TokenDenyList;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.transaction.TransactionAwareCacheDecorator;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 @Service
 @RequiredArgsConstructor
@@ -22,6 +29,8 @@ public class UserServiceImpl {
     private final RoleRepository roleRepository;
     private final UserMapper userMapper;
     private final PasswordEncoder passwordEncoder;
+    private final CacheManager cacheManager;
+    private final TokenDenyList tokenDenyList;
 
     @Transactional
     public UserResponseDto createUser(UserRequestDto userRequestDto) {
@@ -64,6 +73,7 @@ public class UserServiceImpl {
         User existingUser = userRepository.findById(id)
                 .orElseThrow(() -> new UserNotFoundException("User with ID " + id + " not found"));
 
+        String previousUsername = existingUser.getUsername();
         userMapper.updateUserFromDto(userRequestDto, existingUser);
 
         if (userRequestDto.password() != null && !userRequestDto.password().isEmpty()) {
@@ -76,17 +86,48 @@ public class UserServiceImpl {
             existingUser.setRole(role);
         }
 
+        // Роль и имя в уже выданных токенах устарели
+        existingUser.setTokenVersion(existingUser.getTokenVersion() + 1);
         User savedUser = userRepository.save(existingUser);
+        evictPrincipal(previousUsername);
+        evictPrincipal(savedUser.getUsername());
+        revokeTokens(savedUser.getId(), savedUser.getTokenVersion());
 
         return userMapper.userToUserResponseDto(savedUser);
     }
 
 
+    @Transactional
     public void deleteById(Long id) {
         log.info("Deleting user with id: {}", id);
-        if (userRepository.existsById(id)) {
-            userRepository.deleteById(id);
-        } else throw new UserNotFoundException("User not found with id: " + id);
+        User user = userRepository.findById(id)
+                .orElseThrow(() -> new UserNotFoundException("User not found with id: " + id));
+        userRepository.delete(user);
+        evictPrincipal(user.getUsername());
+        revokeTokens(user.getId(), user.getTokenVersion() + 1);
+    }
+
+    // Удаление из кеша принципалов откладывается до коммита, чтобы параллельный запрос не закешировал старые данные
+    private void evictPrincipal(String username) {
+        Cache principals = cacheManager.getCache(CacheConfig.PRINCIPALS);
+        if (principals != null) {
+            new TransactionAwareCacheDecorator(principals).evict(username);
+        }
+    }
+
+
+    // Отзыв тоже только после коммита: при откате изменений выданные токены остаются действительными
+    private void revokeTokens(Long userId, long tokenVersion) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            tokenDenyList.revokeAll(userId, tokenVersion);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                tokenDenyList.revokeAll(userId, tokenVersion);
+            }
+        });
     }
 
 
@@ -0,0 +1,452 @@
+package com.example.bankcards.service.ledger;
+
+import com.example.bankcards.entity.Money;
+import com.example.bankcards.exception.CardNotFoundException;
+import com.example.bankcards.exception.InsufficientFundsException;
+import com.example.bankcards.exception.LedgerUnavailableException;
+import com.example.bankcards.exception.TransferOutcomeUnknownException;
+import com.example.bankcards.repository.LedgerCheckpointRepository;
+import com.example.bankcards.service.CardBalanceCache;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Журнал переводов в памяти (app.transfer.strategy=LEDGER). Балансы карт хранятся в копейках в массивах long,
+ * переводы применяет один поток-писатель, получающий их из кольцевого буфера без блокировок. Каждая пачка
+ * переводов дописывается в журнал предзаписи и сбрасывается на диск до того, как вызывающие получат ответ;
+ * в cards и transactions записи переносит отдельный поток, так что БД отстаёт от журнала на время репликации.
+ * При запуске неперенесённый хвост журнала сначала реплицируется, затем балансы загружаются из БД.
+ * Журнал — единственный, кто списывает с карт: пакетные переводы при этой стратегии отключены,
+ * а изменения карт в обход него (блокировка, истечение срока, удаление) сообщаются через {@link #invalidate}.
+ * Переводы с ключом идемпотентности запоминаются на app.ledger.idempotency-window: команда с уже проведённым
+ * ключом получает запись исходного перевода, поэтому повтор после таймаута подтверждения не списывает дважды.
+ */
+@Component
+@ConditionalOnProperty(name = "app.transfer.strategy", havingValue = "LEDGER")
+@Slf4j
+public class LedgerEngine implements SmartLifecycle {
+
+    private static final int WRITER_BATCH = 256;
+    private static final int SPINS_BEFORE_PARK = 200;
+    private static final long PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+
+    private final LedgerStore store;
+    private final CardBalanceCache cardBalanceCache;
+    private final Path walDirectory;
+    private final long walSegmentSize;
+    private final boolean walFsync;
+    private final Duration ackTimeout;
+    private final int replicationBatch;
+    private final MpscRingBuffer<Command> commands;
+    private final MpscRingBuffer<LedgerRecord> replication;
+
+    // Состояние ниже меняет только поток-писатель
+    private final LongIntHashMap indexByNumber = new LongIntHashMap(1024);
+    private final LongIntHashMap indexById = new LongIntHashMap(1024);
+    private long[] cardNumbers = new long[1024];
+    private long[] cardIds = new long[1024];
+    private long[] balances = new long[1024];
+    private boolean[] active = new boolean[1024];
+    private int cardCount;
+    private long nextSequence;
+    private int nextTransactionId;
+    private int transactionIdBlockEnd;
+    private final Cache<String, LedgerRecord> appliedByKey;
+    private final List<Applied> applied = new ArrayList<>();
+    private final List<InvalidateCommand> invalidations = new ArrayList<>();
+
+    private WriteAheadLog wal;
+    private Thread writer;
+    private Thread replicator;
+    private volatile boolean running;
+    private volatile long appendedSequence;
+    private volatile long replicatedSequence;
+
+    public LedgerEngine(JdbcTemplate jdbcTemplate,
+                        TransactionTemplate transactionTemplate,
+                        LedgerCheckpointRepository checkpointRepository,
+                        EntityManagerFactory entityManagerFactory,
+                        CardBalanceCache cardBalanceCache,
+                        @Value("${app.ledger.wal.directory:./data/ledger-wal}") Path walDirectory,
+                        @Value("${app.ledger.wal.segment-size:64MB}") DataSize walSegmentSize,
+                        @Value("${app.ledger.wal.fsync:true}") boolean walFsync,
+                        @Value("${app.ledger.ring-buffer-size:65536}") int ringBufferSize,
+                        @Value("${app.ledger.ack-timeout:5s}") Duration ackTimeout,
+                        @Value("${app.ledger.replication.batch-size:500}") int replicationBatch,
+                        @Value("${app.ledger.idempotency-window:5m}") Duration idempotencyWindow) {
+        String nextTransactionIdSql = entityManagerFactory.unwrap(SessionFactoryImplementor.class)
+                .getJdbcServices().getDialect().getSequenceSupport().getSequenceNextValString("transactions_id_seq");
+        this.store = new LedgerStore(jdbcTemplate, transactionTemplate, checkpointRepository, nextTransactionIdSql);
+        this.cardBalanceCache = cardBalanceCache;
+        this.walDirectory = walDirectory;
+        this.walSegmentSize = walSegmentSize.toBytes();
+        this.walFsync = walFsync;
+        this.ackTimeout = ackTimeout;
+        this.replicationBatch = replicationBatch;
+        this.commands = new MpscRingBuffer<>(ringBufferSize);
+        this.replication = new MpscRingBuffer<>(ringBufferSize);
+        this.appliedByKey = Caffeine.newBuilder().expireAfterWrite(idempotencyWindow).build();
+    }
+
+    /**
+     * Проводит перевод и возвращает его запись после сброса журнала на диск.
+     */
+    public LedgerRecord transfer(String fromCardNumber, String toCardNumber, Money amount) {
+        return transfer(fromCardNumber, toCardNumber, amount, null);
+    }
+
+    /**
+     * То же с ключом идемпотентности: если перевод с этим ключом уже проведён, возвращается его запись.
+     * Если подтверждение не пришло за ack-timeout, команда остаётся в очереди и может быть проведена позже —
+     * тогда бросается {@link TransferOutcomeUnknownException}.
+     */
+    public LedgerRecord transfer(String fromCardNumber, String toCardNumber, Money amount, String idempotencyKey) {
+        long cents = amount.minorUnits();
+        if (!running) {
+            throw new LedgerUnavailableException("Журнал переводов не запущен");
+        }
+
+        CompletableFuture<LedgerRecord> result = new CompletableFuture<>();
+        if (!commands.offer(new TransferCommand(fromCardNumber, toCardNumber, cents, idempotencyKey, result))) {
+            throw new LedgerUnavailableException("Очередь переводов переполнена, повторите запрос позже");
+        }
+
+        try {
+            return result.get(ackTimeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            throw new TransferOutcomeUnknownException("Перевод не подтверждён вовремя, его результат неизвестен");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new TransferOutcomeUnknownException("Ожидание подтверждения перевода прервано, его результат неизвестен");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    /**
+     * Перечитывает балансы карт из БД после их изменения в обход журнала. Писатель сначала дожидается
+     * репликации уже проведённых переводов, чтобы прочитанный баланс их учитывал.
+     */
+    public void invalidate(Collection<Long> cardIds) {
+        if (!running || cardIds.isEmpty()) {
+            return;
+        }
+        CompletableFuture<Void> result = new CompletableFuture<>();
+        while (!commands.offer(new InvalidateCommand(List.copyOf(cardIds), result))) {
+            LockSupport.parkNanos(PARK_NANOS);
+        }
+        result.join();
+    }
+
+    /**
+     * Ждёт, пока все подтверждённые переводы попадут в БД; false — не успели за timeout.
+     */
+    public boolean awaitReplication(Duration timeout) {
+        long deadline = System.nanoTime() + timeout.toNanos();
+        while (replicatedSequence < appendedSequence) {
+            if (System.nanoTime() > deadline) {
+                return false;
+            }
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+        }
+        return true;
+    }
+
+    @Override
+    public void start() {
+        wal = WriteAheadLog.open(walDirectory, walSegmentSize, walFsync);
+        long checkpoint = store.lastReplicatedSequence();
+        recover(checkpoint);
+
+        appendedSequence = Math.max(wal.lastSequence(), checkpoint);
+        replicatedSequence = appendedSequence;
+        nextSequence = appendedSequence + 1;
+        store.loadAllCards(this::putCard);
+        log.info("Журнал переводов запущен: {} карт, следующая запись {}", cardCount, nextSequence);
+
+        running = true;
+        writer = new Thread(this::runWriter, "ledger-writer");
+        replicator = new Thread(this::runReplicator, "ledger-replicator");
+        writer.start();
+        replicator.start();
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        try {
+            writer.join();
+            replicator.join(TimeUnit.SECONDS.toMillis(30));
+            wal.close();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            log.warn("Ошибка при закрытии журнала переводов: {}", e.getMessage());
+        }
+        log.info("Журнал переводов остановлен на записи {}, в БД перенесено до {}", appendedSequence, replicatedSequence);
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    // Запускается раньше веб-сервера и останавливается после него
+    @Override
+    public int getPhase() {
+        return DEFAULT_PHASE - 4096;
+    }
+
+    private void recover(long checkpoint) {
+        List<LedgerRecord> tail;
+        try {
+            tail = wal.readAfter(checkpoint);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не удалось прочитать журнал переводов", e);
+        }
+        if (tail.isEmpty()) {
+            return;
+        }
+
+        log.info("Перенос в БД {} записей журнала после записи {}", tail.size(), checkpoint);
+        for (int from = 0; from < tail.size(); from += replicationBatch) {
+            List<LedgerRecord> chunk = tail.subList(from, Math.min(tail.size(), from + replicationBatch));
+            cardBalanceCache.evictAll(store.replicate(chunk));
+        }
+    }
+
+    private void runWriter() {
+        int idleRounds = 0;
+        while (running) {
+            if (commands.drain(this::apply, WRITER_BATCH) == 0) {
+                idle(++idleRounds);
+                continue;
+            }
+            idleRounds = 0;
+            flush();
+        }
+        commands.drain(command -> command.fail(new LedgerUnavailableException("Журнал переводов остановлен")),
+                Integer.MAX_VALUE);
+    }
+
+    private void apply(Command command) {
+        if (command instanceof InvalidateCommand invalidation) {
+            invalidations.add(invalidation);
+            return;
+        }
+
+        TransferCommand transfer = (TransferCommand) command;
+        if (transfer.idempotencyKey() != null) {
+            LedgerRecord previous = appliedByKey.getIfPresent(transfer.idempotencyKey());
+            if (previous != null) {
+                log.info("Перевод с этим ключом идемпотентности уже проведён: запись {}", previous.sequence());
+                applied.add(new Applied(previous, transfer.result(), true));
+                return;
+            }
+        }
+
+        try {
+            int from = cardIndex(transfer.fromCardNumber(), "Карта отправителя не найдена: ");
+            int to = cardIndex(transfer.toCardNumber(), "Карта получателя не найдена: ");
+            // Как и стратегия SQL: заблокированные и просроченные карты не участвуют в переводах
+            checkActive(from, transfer.fromCardNumber(), "Карта отправителя неактивна: ");
+            checkActive(to, transfer.toCardNumber(), "Карта получателя неактивна: ");
+            if (balances[from] < transfer.amountCents()) {
+                log.warn("Недостаточно средств на карте {}: баланс {}, требуется {}", transfer.fromCardNumber(),
+                        Money.ofMinor(balances[from]), Money.ofMinor(transfer.amountCents()));
+                throw new InsufficientFundsException("Недостаточно средств на карте: " + transfer.fromCardNumber());
+            }
+            if (nextTransactionId == transactionIdBlockEnd) {
+                nextTransactionId = store.nextTransactionIdBlock();
+                transactionIdBlockEnd = nextTransactionId + store.idBlockSize();
+            }
+
+            LedgerRecord record = new LedgerRecord(nextSequence, nextTransactionId, cardIds[from], cardIds[to],
+                    transfer.amountCents(), LedgerStore.toMicros(LocalDateTime.now()));
+            // Сначала журнал: если запись не удалась, балансы остаются прежними
+            wal.append(record);
+            nextSequence++;
+            nextTransactionId++;
+            balances[from] -= transfer.amountCents();
+            balances[to] += transfer.amountCents();
+            if (transfer.idempotencyKey() != null) {
+                appliedByKey.put(transfer.idempotencyKey(), record);
+            }
+            applied.add(new Applied(record, transfer.result(), false));
+        } catch (RuntimeException e) {
+            transfer.result().completeExceptionally(e);
+        }
+    }
+
+    private void flush() {
+        if (!applied.isEmpty()) {
+            try {
+                wal.force();
+            } catch (RuntimeException e) {
+                // Проведённые в памяти переводы не защищены журналом — дальше работать нельзя
+                log.error("Не удалось сбросить журнал переводов на диск, журнал останавливается", e);
+                running = false;
+                applied.forEach(entry -> entry.result().completeExceptionally(
+                        new LedgerUnavailableException("Журнал переводов недоступен")));
+                applied.clear();
+                return;
+            }
+
+            appendedSequence = nextSequence - 1;
+            for (Applied entry : applied) {
+                int idleRounds = 0;
+                // Повтор по ключу возвращает уже записанный перевод, реплицировать его второй раз нельзя
+                while (!entry.duplicate() && !replication.offer(entry.record())) {
+                    idle(++idleRounds);
+                }
+                entry.result().complete(entry.record());
+            }
+            applied.clear();
+        }
+
+        if (!invalidations.isEmpty()) {
+            while (running && !awaitReplication(Duration.ofSeconds(1))) {
+                log.warn("Перечитывание карт ждёт репликации журнала до записи {}", appendedSequence);
+            }
+            for (InvalidateCommand invalidation : invalidations) {
+                invalidation.cardIds().forEach(this::reloadCard);
+                invalidation.result().complete(null);
+            }
+            invalidations.clear();
+        }
+    }
+
+    private void runReplicator() {
+        List<LedgerRecord> pending = new ArrayList<>();
+        while (running || replicatedSequence < appendedSequence) {
+            replication.drain(pending::add, replicationBatch - pending.size());
+            if (pending.isEmpty()) {
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+                continue;
+            }
+
+            try {
+                cardBalanceCache.evictAll(store.replicate(pending));
+                long last = pending.get(pending.size() - 1).sequence();
+                replicatedSequence = last;
+                wal.release(last);
+                pending.clear();
+            } catch (RuntimeException e) {
+                log.error("Ошибка репликации журнала переводов, повтор через секунду: {}", e.getMessage());
+                LockSupport.parkNanos(TimeUnit.SECONDS.toNanos(1));
+            }
+        }
+    }
+
+    private int cardIndex(String cardNumber, String notFoundMessage) {
+        int index = LongIntHashMap.MISSING;
+        if (LedgerStore.isCardNumber(cardNumber)) {
+            long number = Long.parseLong(cardNumber);
+            index = indexByNumber.get(number);
+            // Карта, созданная после запуска, загружается при первом обращении
+            if (index == LongIntHashMap.MISSING && store.loadCard(number, this::putCard)) {
+                index = indexByNumber.get(number);
+            }
+        }
+        if (index == LongIntHashMap.MISSING) {
+            log.warn(notFoundMessage + "{}", cardNumber);
+            throw new CardNotFoundException(notFoundMessage + cardNumber);
+        }
+        return index;
+    }
+
+    private void checkActive(int index, String cardNumber, String inactiveMessage) {
+        if (!active[index]) {
+            log.warn(inactiveMessage + "{}", cardNumber);
+            throw new IllegalStateException(inactiveMessage + cardNumber);
+        }
+    }
+
+    private void putCard(long cardId, long cardNumber, long balanceCents, boolean cardActive) {
+        int index = indexById.get(cardId);
+        if (index == LongIntHashMap.MISSING) {
+            if (cardCount == cardIds.length) {
+                cardNumbers = Arrays.copyOf(cardNumbers, cardCount * 2);
+                cardIds = Arrays.copyOf(cardIds, cardCount * 2);
+                balances = Arrays.copyOf(balances, cardCount * 2);
+                active = Arrays.copyOf(active, cardCount * 2);
+            }
+            index = cardCount++;
+            indexById.put(cardId, index);
+            indexByNumber.put(cardNumber, index);
+        }
+        cardNumbers[index] = cardNumber;
+        cardIds[index] = cardId;
+        balances[index] = balanceCents;
+        active[index] = cardActive;
+    }
+
+    private void reloadCard(Long cardId) {
+        int index = indexById.get(cardId);
+        if (index == LongIntHashMap.MISSING) {
+            return;
+        }
+        if (!store.loadCardById(cardId, this::putCard)) {
+            indexById.remove(cardId);
+            indexByNumber.remove(cardNumbers[index]);
+        }
+    }
+
+    private static void idle(int idleRounds) {
+        if (idleRounds < SPINS_BEFORE_PARK) {
+            Thread.onSpinWait();
+        } else {
+            LockSupport.parkNanos(PARK_NANOS);
+        }
+    }
+
+    private sealed interface Command permits TransferCommand, InvalidateCommand {
+        void fail(RuntimeException e);
+    }
+
+    private record TransferCommand(String fromCardNumber, String toCardNumber, long amountCents, String idempotencyKey,
+                                   CompletableFuture<LedgerRecord> result) implements Command {
+        @Override
+        public void fail(RuntimeException e) {
+            result.completeExceptionally(e);
+        }
+    }
+
+    private record InvalidateCommand(List<Long> cardIds, CompletableFuture<Void> result) implements Command {
+        @Override
+        public void fail(RuntimeException e) {
+            result.completeExceptionally(e);
+        }
+    }
+
+    private record Applied(LedgerRecord record, CompletableFuture<LedgerRecord> result, boolean duplicate) {
+    }
+}
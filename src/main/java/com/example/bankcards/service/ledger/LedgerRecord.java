@@ -0,0 +1,15 @@
+package com.example.bankcards.service.ledger;
+
+import java.time.LocalDateTime;
+
+/**
+ * Проведённый перевод в том виде, в каком он пишется в журнал и реплицируется в БД.
+ * Суммы — в копейках, время — микросекунды от эпохи по локальному времени сервера.
+ */
+public record LedgerRecord(long sequence, int transactionId, long fromCardId, long toCardId, long amountCents,
+                           long timestampMicros) {
+
+    public LocalDateTime timestamp() {
+        return LedgerStore.toLocalDateTime(timestampMicros);
+    }
+}
@@ -0,0 +1,162 @@
+package com.example.bankcards.service.ledger;
+
+import com.example.bankcards.entity.LedgerCheckpoint;
+import com.example.bankcards.entity.Money;
+import com.example.bankcards.entity.enums.CardStatus;
+import com.example.bankcards.repository.LedgerCheckpointRepository;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Обращения журнала переводов к БД: загрузка балансов и статусов карт, блоки id транзакций и репликация записей.
+ */
+class LedgerStore {
+
+    static final String CHECKPOINT = "ledger";
+
+    // Совпадает с allocationSize последовательности transactions_id_seq у сущности Transaction
+    private static final int ID_BLOCK = 50;
+
+    private static final String CARD_BALANCES = """
+            select c.id, c.card_number, c.status,
+                   c.balance + coalesce((select sum(s.balance) from card_balance_slots s where s.card_id = c.id), 0) as balance
+            from cards c
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final LedgerCheckpointRepository checkpointRepository;
+    private final String nextTransactionIdSql;
+
+    LedgerStore(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate,
+                LedgerCheckpointRepository checkpointRepository, String nextTransactionIdSql) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.checkpointRepository = checkpointRepository;
+        this.nextTransactionIdSql = nextTransactionIdSql;
+    }
+
+    interface CardBalanceConsumer {
+        void accept(long cardId, long cardNumber, long balanceCents, boolean active);
+    }
+
+    long lastReplicatedSequence() {
+        return transactionTemplate.execute(status -> checkpointRepository.findById(CHECKPOINT)
+                .orElseGet(() -> checkpointRepository.save(new LedgerCheckpoint(CHECKPOINT, 0L)))
+                .getLastSequence());
+    }
+
+    void loadAllCards(CardBalanceConsumer consumer) {
+        jdbcTemplate.query(CARD_BALANCES, (ResultSet rs) -> {
+            accept(rs, consumer);
+        });
+    }
+
+    /**
+     * Баланс одной карты по номеру; false — карты нет.
+     */
+    boolean loadCard(long cardNumber, CardBalanceConsumer consumer) {
+        return !jdbcTemplate.query(CARD_BALANCES + " where c.card_number = ?",
+                (rs, rowNum) -> accept(rs, consumer), formatCardNumber(cardNumber)).isEmpty();
+    }
+
+    boolean loadCardById(long cardId, CardBalanceConsumer consumer) {
+        return !jdbcTemplate.query(CARD_BALANCES + " where c.id = ?",
+                (rs, rowNum) -> accept(rs, consumer), cardId).isEmpty();
+    }
+
+    /**
+     * Первый id очередного блока из ID_BLOCK идентификаторов. Hibernate (оптимизатор pooled) считает значение
+     * последовательности верхней границей блока, поэтому блок — [value - ID_BLOCK + 1, value];
+     * значения меньше ID_BLOCK дают неполный блок и пропускаются.
+     */
+    int nextTransactionIdBlock() {
+        long value;
+        do {
+            value = jdbcTemplate.queryForObject(nextTransactionIdSql, Long.class);
+        } while (value < ID_BLOCK);
+        return Math.toIntExact(value - ID_BLOCK + 1);
+    }
+
+    int idBlockSize() {
+        return ID_BLOCK;
+    }
+
+    /**
+     * Переносит записи в transactions и cards и сдвигает контрольную точку — всё в одной транзакции.
+     * Записи с номером не больше контрольной точки уже перенесены и пропускаются.
+     */
+    List<Long> replicate(List<LedgerRecord> records) {
+        return transactionTemplate.execute(status -> {
+            long checkpoint = checkpointRepository.findById(CHECKPOINT).map(LedgerCheckpoint::getLastSequence).orElse(0L);
+            List<LedgerRecord> pending = records.stream().filter(record -> record.sequence() > checkpoint).toList();
+            if (pending.isEmpty()) {
+                return List.of();
+            }
+
+            jdbcTemplate.batchUpdate(
+                    "insert into transactions (id, from_card_id, to_card_id, amount, \"timestamp\") values (?, ?, ?, ?, ?)",
+                    pending, pending.size(), (ps, record) -> {
+                        ps.setInt(1, record.transactionId());
+                        ps.setLong(2, record.fromCardId());
+                        ps.setLong(3, record.toCardId());
+                        ps.setBigDecimal(4, Money.ofMinor(record.amountCents()).toBigDecimal());
+                        ps.setTimestamp(5, Timestamp.valueOf(toLocalDateTime(record.timestampMicros())));
+                    });
+
+            // Изменения по картам суммируются и применяются в порядке id, как блокируют карты переводы JPA
+            Map<Long, Long> deltas = new TreeMap<>();
+            for (LedgerRecord record : pending) {
+                deltas.merge(record.fromCardId(), -record.amountCents(), Long::sum);
+                deltas.merge(record.toCardId(), record.amountCents(), Long::sum);
+            }
+            List<Map.Entry<Long, Long>> updates = new ArrayList<>(deltas.entrySet());
+            jdbcTemplate.batchUpdate("update cards set balance = balance + ?, version = version + 1 where id = ?",
+                    updates, updates.size(), (ps, delta) -> {
+                        ps.setBigDecimal(1, Money.ofMinor(delta.getValue()).toBigDecimal());
+                        ps.setLong(2, delta.getKey());
+                    });
+
+            jdbcTemplate.update("update ledger_checkpoints set last_sequence = ? where name = ?",
+                    pending.get(pending.size() - 1).sequence(), CHECKPOINT);
+            return List.copyOf(deltas.keySet());
+        });
+    }
+
+    static long toMicros(LocalDateTime timestamp) {
+        return timestamp.toEpochSecond(ZoneOffset.UTC) * 1_000_000 + timestamp.getNano() / 1_000;
+    }
+
+    static LocalDateTime toLocalDateTime(long micros) {
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(micros, 1_000_000),
+                (int) Math.floorMod(micros, 1_000_000) * 1_000, ZoneOffset.UTC);
+    }
+
+    // Номера карт — 16 цифр (CardRequestDto), поэтому помещаются в long без потери ведущих нулей
+    static boolean isCardNumber(String number) {
+        return number != null && number.matches("\\d{16}");
+    }
+
+    private static String formatCardNumber(long cardNumber) {
+        return String.format("%016d", cardNumber);
+    }
+
+    private static Void accept(ResultSet rs, CardBalanceConsumer consumer) throws SQLException {
+        String number = rs.getString("card_number");
+        if (isCardNumber(number)) {
+            consumer.accept(rs.getLong("id"), Long.parseLong(number), Money.of(rs.getBigDecimal("balance")).minorUnits(),
+                    CardStatus.ACTIVE.name().equals(rs.getString("status")));
+        }
+        return null;
+    }
+}
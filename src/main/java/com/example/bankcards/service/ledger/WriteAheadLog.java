@@ -0,0 +1,231 @@
+package com.example.bankcards.service.ledger;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Журнал предзаписи переводов: сегменты фиксированного размера, отображённые в память.
+ * Запись — 48 байт с CRC32; незаписанный хвост сегмента заполнен нулями, поэтому при чтении
+ * журнал заканчивается на первой записи с нулевым номером или неверной контрольной суммой
+ * (недописанная при падении запись). Пишет только поток-писатель; сегменты, полностью
+ * перенесённые в БД, удаляет поток репликации через {@link #release(long)}.
+ */
+@Slf4j
+class WriteAheadLog implements Closeable {
+
+    static final int RECORD_SIZE = 48;
+
+    private static final int PAYLOAD_SIZE = RECORD_SIZE - Integer.BYTES;
+
+    private final Path directory;
+    private final long segmentSize;
+    private final boolean fsync;
+    private final ConcurrentSkipListMap<Long, Path> sealedSegments = new ConcurrentSkipListMap<>();
+
+    private volatile long activeFirstSequence;
+    private Path activePath;
+    private FileChannel activeChannel;
+    private MappedByteBuffer active;
+    private int forcedPosition;
+    private long lastSequence;
+
+    private WriteAheadLog(Path directory, long segmentSize, boolean fsync) {
+        this.directory = directory;
+        this.segmentSize = segmentSize - segmentSize % RECORD_SIZE;
+        this.fsync = fsync;
+    }
+
+    /**
+     * Открывает журнал в каталоге и продолжает запись после последней целой записи.
+     */
+    static WriteAheadLog open(Path directory, long segmentSize, boolean fsync) {
+        if (segmentSize < RECORD_SIZE) {
+            throw new IllegalArgumentException("Размер сегмента журнала меньше одной записи: " + segmentSize);
+        }
+        WriteAheadLog wal = new WriteAheadLog(directory, segmentSize, fsync);
+        try {
+            Files.createDirectories(directory);
+            List<Path> segments = wal.segments();
+            for (Path segment : segments) {
+                wal.sealedSegments.put(firstSequence(segment), segment);
+            }
+            for (LedgerRecord record : wal.readAfter(0)) {
+                wal.lastSequence = record.sequence();
+            }
+            if (!segments.isEmpty()) {
+                Path last = segments.get(segments.size() - 1);
+                wal.sealedSegments.remove(firstSequence(last));
+                wal.map(last, firstSequence(last));
+                wal.active.position(validBytes(wal.active));
+                wal.forcedPosition = wal.active.position();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не удалось открыть журнал " + directory, e);
+        }
+        return wal;
+    }
+
+    long lastSequence() {
+        return lastSequence;
+    }
+
+    /**
+     * Все целые записи с номером больше afterSequence в порядке записи.
+     */
+    List<LedgerRecord> readAfter(long afterSequence) throws IOException {
+        List<LedgerRecord> records = new ArrayList<>();
+        for (Path segment : segments()) {
+            try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ)) {
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                while (buffer.remaining() >= RECORD_SIZE) {
+                    LedgerRecord record = read(buffer);
+                    if (record == null) {
+                        break;
+                    }
+                    if (record.sequence() > afterSequence) {
+                        records.add(record);
+                    }
+                }
+            }
+        }
+        return records;
+    }
+
+    /**
+     * Дописывает запись в текущий сегмент; на диск она гарантированно попадает после {@link #force()}.
+     */
+    void append(LedgerRecord record) {
+        if (active == null || active.remaining() < RECORD_SIZE) {
+            roll(record.sequence());
+        }
+        int start = active.position();
+        active.putLong(record.sequence());
+        active.putInt(record.transactionId());
+        active.putLong(record.fromCardId());
+        active.putLong(record.toCardId());
+        active.putLong(record.amountCents());
+        active.putLong(record.timestampMicros());
+        CRC32 crc = new CRC32();
+        crc.update(active.slice(start, PAYLOAD_SIZE));
+        active.putInt((int) crc.getValue());
+        lastSequence = record.sequence();
+    }
+
+    /**
+     * Сбрасывает на диск записи, добавленные после предыдущего вызова (одна синхронизация на пачку).
+     */
+    void force() {
+        if (active != null && fsync && active.position() > forcedPosition) {
+            active.force(forcedPosition, active.position() - forcedPosition);
+        }
+        if (active != null) {
+            forcedPosition = active.position();
+        }
+    }
+
+    /**
+     * Удаляет закрытые сегменты, все записи которых уже перенесены в БД.
+     */
+    void release(long replicatedSequence) {
+        for (Map.Entry<Long, Path> segment : sealedSegments.entrySet()) {
+            Long next = sealedSegments.higherKey(segment.getKey());
+            long end = (next != null ? next : activeFirstSequence) - 1;
+            if (end > replicatedSequence) {
+                return;
+            }
+            try {
+                Files.deleteIfExists(segment.getValue());
+                sealedSegments.remove(segment.getKey());
+            } catch (IOException e) {
+                log.warn("Не удалось удалить сегмент журнала {}: {}", segment.getValue(), e.getMessage());
+                return;
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        force();
+        if (activeChannel != null) {
+            activeChannel.close();
+        }
+    }
+
+    private void roll(long firstSequence) {
+        try {
+            force();
+            Path previous = activePath;
+            long previousFirst = activeFirstSequence;
+            if (activeChannel != null) {
+                activeChannel.close();
+            }
+            map(directory.resolve(String.format("wal-%020d.log", firstSequence)), firstSequence);
+            if (previous != null) {
+                sealedSegments.put(previousFirst, previous);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не удалось создать сегмент журнала", e);
+        }
+    }
+
+    private void map(Path path, long firstSequence) throws IOException {
+        activeChannel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        active = activeChannel.map(FileChannel.MapMode.READ_WRITE, 0, Math.max(segmentSize, activeChannel.size()));
+        activePath = path;
+        activeFirstSequence = firstSequence;
+        forcedPosition = 0;
+    }
+
+    // Позиция сразу за последней целой записью сегмента
+    private static int validBytes(ByteBuffer buffer) {
+        ByteBuffer view = buffer.duplicate().position(0);
+        while (view.remaining() >= RECORD_SIZE && read(view) != null) {
+            // пропускаем целые записи
+        }
+        return view.position();
+    }
+
+    private List<Path> segments() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(path -> path.getFileName().toString().matches("wal-\\d{20}\\.log")).sorted().toList();
+        }
+    }
+
+    private static long firstSequence(Path segment) {
+        String name = segment.getFileName().toString();
+        return Long.parseLong(name.substring(4, name.length() - 4));
+    }
+
+    private static LedgerRecord read(ByteBuffer buffer) {
+        int start = buffer.position();
+        long sequence = buffer.getLong();
+        if (sequence == 0) {
+            buffer.position(start);
+            return null;
+        }
+        LedgerRecord record = new LedgerRecord(sequence, buffer.getInt(), buffer.getLong(), buffer.getLong(),
+                buffer.getLong(), buffer.getLong());
+        CRC32 crc = new CRC32();
+        crc.update(buffer.slice(start, PAYLOAD_SIZE));
+        if ((int) crc.getValue() != buffer.getInt()) {
+            buffer.position(start);
+            return null;
+        }
+        return record;
+    }
+}
@@ -0,0 +1,82 @@
+package com.example.bankcards.service.retry;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Повтор методов с {@link RetryOnConflict} с экспоненциальной задержкой и случайным разбросом.
+ * Выполняется раньше @Transactional, поэтому каждая попытка идёт в новой транзакции.
+ * Счётчик service.conflicts{operation, outcome=retried|exhausted} показывает конфликты по операциям.
+ */
+@Aspect
+@Component
+@Order(Ordered.LOWEST_PRECEDENCE - 1)
+@RequiredArgsConstructor
+@Slf4j
+public class ConflictRetryAspect {
+
+    private final MeterRegistry meterRegistry;
+
+    @Value("${app.retry.max-attempts:5}")
+    private int maxAttempts;
+
+    @Value("${app.retry.initial-backoff-ms:20}")
+    private long initialBackoffMs;
+
+    @Value("${app.retry.max-backoff-ms:500}")
+    private long maxBackoffMs;
+
+    @Around("@annotation(com.example.bankcards.service.retry.RetryOnConflict)")
+    public Object retry(ProceedingJoinPoint joinPoint) throws Throwable {
+        String operation = joinPoint.getSignature().getDeclaringType().getSimpleName()
+                + "." + joinPoint.getSignature().getName();
+
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return joinPoint.proceed();
+            } catch (ConcurrencyFailureException ex) {
+                // Внутри чужой транзакции повтор увидит те же устаревшие данные — решает внешний вызов
+                if (TransactionSynchronizationManager.isActualTransactionActive()) {
+                    throw ex;
+                }
+                if (attempt >= maxAttempts) {
+                    meterRegistry.counter("service.conflicts", "operation", operation, "outcome", "exhausted").increment();
+                    log.error("{} не выполнена после {} попыток: {}", operation, attempt, ex.getMessage());
+                    throw ex;
+                }
+                meterRegistry.counter("service.conflicts", "operation", operation, "outcome", "retried").increment();
+                long delay = backoffDelay(attempt);
+                log.warn("Конфликт параллельной записи в {} (попытка {}/{}), повтор через {} мс",
+                        operation, attempt, maxAttempts, delay);
+                sleep(delay, ex);
+            }
+        }
+    }
+
+    private long backoffDelay(int attempt) {
+        long exponential = initialBackoffMs << Math.min(attempt - 1, 20);
+        long capped = Math.min(exponential, maxBackoffMs);
+        return capped / 2 + ThreadLocalRandom.current().nextLong(capped / 2 + 1);
+    }
+
+    private void sleep(long delayMs, RuntimeException cause) {
+        try {
+            Thread.sleep(delayMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw cause;
+        }
+    }
+}
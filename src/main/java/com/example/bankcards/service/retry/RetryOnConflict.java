@@ -0,0 +1,18 @@
+package com.example.bankcards.service.retry;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Повторяет метод сервиса при конфликте параллельной записи (устаревшая версия строки,
+ * дедлок, таймаут блокировки). Метод должен сам открывать транзакцию: повтор выполняется
+ * снаружи неё, каждая попытка видит свежие данные.
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface RetryOnConflict {
+}
@@ -0,0 +1,98 @@
+package com.example.bankcards.service.transfer;
+
+import com.example.bankcards.dto.TransactionRequestDto;
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.entity.Transaction;
+import com.example.bankcards.exception.CardNotFoundException;
+import com.example.bankcards.exception.InsufficientFundsException;
+import com.example.bankcards.repository.CardRef;
+import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.repository.TransactionRepository;
+import com.example.bankcards.service.CardBalanceSlotServiceImpl;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class JpaTransferStrategy implements TransferStrategy {
+
+    private final CardRepository cardRepository;
+    private final TransactionRepository transactionRepository;
+    private final CardBalanceSlotServiceImpl balanceSlotService;
+
+    @Override
+    public Type type() {
+        return Type.JPA;
+    }
+
+    @Override
+    public Transaction transfer(TransactionRequestDto request) {
+        CardRef from = cardRepository.findRefByCardNumber(request.fromCardNumber())
+                .orElseThrow(() -> {
+                    log.warn("Карта отправителя не найдена: {}", request.fromCardNumber());
+                    return new CardNotFoundException("Карта отправителя не найдена: " + request.fromCardNumber());
+                });
+
+        CardRef to = cardRepository.findRefByCardNumber(request.toCardNumber())
+                .orElseThrow(() -> {
+                    log.warn("Карта получателя не найдена: {}", request.toCardNumber());
+                    return new CardNotFoundException("Карта получателя не найдена: " + request.toCardNumber());
+                });
+
+        // Блокируем карты всегда в порядке возрастания id: встречные переводы A->B и B->A не дают дедлока
+        Card fromCard;
+        Card toCard;
+        if (from.getId() < to.getId()) {
+            fromCard = debit(from, request);
+            toCard = credit(to, request);
+        } else {
+            toCard = credit(to, request);
+            fromCard = debit(from, request);
+        }
+
+        Transaction transaction = new Transaction();
+        transaction.setFromCard(fromCard);
+        transaction.setToCard(toCard);
+        transaction.setAmount(request.amount());
+        transaction.setTimestamp(LocalDateTime.now());
+
+        return transactionRepository.save(transaction);
+    }
+
+    private Card debit(CardRef ref, TransactionRequestDto request) {
+        if (ref.getBalanceSlots() > 0) {
+            // Строка горячей карты не блокируется и не меняется
+            balanceSlotService.debit(ref.getId(), request.fromCardNumber(), request.amount());
+            return cardRepository.getReferenceById(ref.getId());
+        }
+
+        Card card = lockCard(ref.getId());
+        if (card.getBalance().isLessThan(request.amount())) {
+            log.warn("Недостаточно средств на карте {}: баланс {}, требуется {}",
+                    request.fromCardNumber(), card.getBalance(), request.amount());
+            throw new InsufficientFundsException("Недостаточно средств на карте: " + request.fromCardNumber());
+        }
+        card.setBalance(card.getBalance().minus(request.amount()));
+        return card;
+    }
+
+    private Card credit(CardRef ref, TransactionRequestDto request) {
+        if (ref.getBalanceSlots() > 0) {
+            balanceSlotService.credit(ref.getId(), ref.getBalanceSlots(), request.amount());
+            return cardRepository.getReferenceById(ref.getId());
+        }
+
+        Card card = lockCard(ref.getId());
+        card.setBalance(card.getBalance().plus(request.amount()));
+        return card;
+    }
+
+    private Card lockCard(Long cardId) {
+        return cardRepository.findByIdForUpdate(cardId)
+                .orElseThrow(() -> new CardNotFoundException("Карта не найдена: id " + cardId));
+    }
+}
@@ -0,0 +1,45 @@
+package com.example.bankcards.service.transfer;
+
+import com.example.bankcards.dto.TransactionRequestDto;
+import com.example.bankcards.entity.Transaction;
+import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.service.ledger.LedgerEngine;
+import com.example.bankcards.service.ledger.LedgerRecord;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * Перевод через журнал в памяти без обращений к БД: транзакция появляется в таблице transactions
+ * после асинхронной репликации, карты в ответе — ссылки без загрузки.
+ */
+@Component
+@ConditionalOnProperty(name = "app.transfer.strategy", havingValue = "LEDGER")
+@RequiredArgsConstructor
+public class LedgerTransferStrategy implements TransferStrategy {
+
+    private final LedgerEngine ledgerEngine;
+    private final CardRepository cardRepository;
+
+    @Override
+    public Type type() {
+        return Type.LEDGER;
+    }
+
+    @Override
+    public Transaction transfer(TransactionRequestDto request) {
+        return transfer(request, null);
+    }
+
+    // Журнал не откатывается вместе с транзакцией вызывающего, поэтому повтор по ключу он распознаёт сам
+    @Override
+    public Transaction transfer(TransactionRequestDto request, String idempotencyKey) {
+        LedgerRecord record = ledgerEngine.transfer(request.fromCardNumber(), request.toCardNumber(), request.amount(),
+                idempotencyKey);
+        return new Transaction(record.transactionId(),
+                cardRepository.getReferenceById(record.fromCardId()),
+                cardRepository.getReferenceById(record.toCardId()),
+                request.amount(),
+                record.timestamp());
+    }
+}
@@ -0,0 +1,90 @@
+package com.example.bankcards.service.transfer;
+
+import com.example.bankcards.dto.TransactionRequestDto;
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.entity.Transaction;
+import com.example.bankcards.entity.enums.CardStatus;
+import com.example.bankcards.exception.CardNotFoundException;
+import com.example.bankcards.exception.InsufficientFundsException;
+import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.repository.TransactionRepository;
+import com.example.bankcards.repository.TransferOutcome;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Перевод одним SQL-выражением: условное списание, зачисление и запись транзакции
+ * выполняются за один запрос к БД без предварительного чтения карт.
+ * Требует PostgreSQL (data-modifying CTE). Переводы с участием карт в режиме слотов проводятся
+ * стратегией JPA через слоты: запрос такие карты не трогает.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class SqlTransferStrategy implements TransferStrategy {
+
+    private final CardRepository cardRepository;
+    private final TransactionRepository transactionRepository;
+    private final JpaTransferStrategy jpaTransferStrategy;
+
+    @Override
+    public Type type() {
+        return Type.SQL;
+    }
+
+    @Override
+    public Transaction transfer(TransactionRequestDto request) {
+        LocalDateTime timestamp = LocalDateTime.now();
+        TransferOutcome outcome = transactionRepository.transferAtomically(
+                request.fromCardNumber(), request.toCardNumber(), request.amount().toBigDecimal(), timestamp);
+
+        if (outcome.getTransactionId() == null) {
+            // Списания не было — значит, запрос ничего не изменил, и перевод можно провести через слоты
+            if (outcome.getFromCardId() == null && hasBalanceSlots(request)) {
+                return jpaTransferStrategy.transfer(request);
+            }
+            // Исключение откатывает транзакцию, в том числе уже выполненное списание
+            throw rejection(request, outcome);
+        }
+
+        return new Transaction(outcome.getTransactionId(),
+                cardRepository.getReferenceById(outcome.getFromCardId()),
+                cardRepository.getReferenceById(outcome.getToCardId()),
+                request.amount(),
+                timestamp);
+    }
+
+    // Горячие карты проверяются только на неуспешном пути, чтобы не добавлять запрос к обычному переводу
+    private boolean hasBalanceSlots(TransactionRequestDto request) {
+        return cardRepository.findRefsByCardNumberIn(List.of(request.fromCardNumber(), request.toCardNumber()))
+                .stream().anyMatch(ref -> ref.getBalanceSlots() > 0);
+    }
+
+    // Причину отказа выясняем только на неуспешном пути
+    private RuntimeException rejection(TransactionRequestDto request, TransferOutcome outcome) {
+        if (outcome.getFromCardId() == null) {
+            Card fromCard = cardRepository.findByCardNumber(request.fromCardNumber()).orElse(null);
+            if (fromCard == null) {
+                log.warn("Карта отправителя не найдена: {}", request.fromCardNumber());
+                return new CardNotFoundException("Карта отправителя не найдена: " + request.fromCardNumber());
+            }
+            if (fromCard.getStatus() != CardStatus.ACTIVE) {
+                log.warn("Карта отправителя неактивна: {}", request.fromCardNumber());
+                return new IllegalStateException("Карта отправителя неактивна: " + request.fromCardNumber());
+            }
+            log.warn("Недостаточно средств на карте {}: требуется {}", request.fromCardNumber(), request.amount());
+            return new InsufficientFundsException("Недостаточно средств на карте: " + request.fromCardNumber());
+        }
+
+        if (cardRepository.findIdByCardNumber(request.toCardNumber()).isEmpty()) {
+            log.warn("Карта получателя не найдена: {}", request.toCardNumber());
+            return new CardNotFoundException("Карта получателя не найдена: " + request.toCardNumber());
+        }
+        log.warn("Карта получателя неактивна: {}", request.toCardNumber());
+        return new IllegalStateException("Карта получателя неактивна: " + request.toCardNumber());
+    }
+}
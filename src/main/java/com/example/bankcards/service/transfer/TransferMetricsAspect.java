@@ -0,0 +1,58 @@
+package com.example.bankcards.service.transfer;
+
+import com.example.bankcards.dto.TransactionRequestDto;
+import com.example.bankcards.exception.CardNotFoundException;
+import com.example.bankcards.exception.InsufficientFundsException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.stereotype.Component;
+
+/**
+ * Метрики переводов TransactionServiceImpl.createTransfer:
+ * таймер transfers{outcome=success|insufficient_funds|card_not_found|same_card|invalid|conflict|error}
+ * и счётчик transfers.amount — сумма успешных переводов в рублях.
+ * Выполняется раньше повторов и @Transactional, поэтому время включает все попытки и фиксацию транзакции.
+ */
+@Aspect
+@Component
+@Order(Ordered.LOWEST_PRECEDENCE - 2)
+@RequiredArgsConstructor
+public class TransferMetricsAspect {
+
+    private final MeterRegistry meterRegistry;
+
+    @Around("execution(* com.example.bankcards.service.TransactionServiceImpl.createTransfer(..))")
+    public Object measure(ProceedingJoinPoint joinPoint) throws Throwable {
+        TransactionRequestDto request = (TransactionRequestDto) joinPoint.getArgs()[0];
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String outcome = "error";
+        try {
+            Object result = joinPoint.proceed();
+            outcome = "success";
+            meterRegistry.counter("transfers.amount").increment(request.amount().toBigDecimal().doubleValue());
+            return result;
+        } catch (InsufficientFundsException ex) {
+            outcome = "insufficient_funds";
+            throw ex;
+        } catch (CardNotFoundException ex) {
+            outcome = "card_not_found";
+            throw ex;
+        } catch (IllegalArgumentException ex) {
+            outcome = request.fromCardNumber() != null && request.fromCardNumber().equals(request.toCardNumber())
+                    ? "same_card" : "invalid";
+            throw ex;
+        } catch (ConcurrencyFailureException ex) {
+            outcome = "conflict";
+            throw ex;
+        } finally {
+            sample.stop(meterRegistry.timer("transfers", "outcome", outcome));
+        }
+    }
+}
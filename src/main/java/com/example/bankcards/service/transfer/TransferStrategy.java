@@ -0,0 +1,29 @@
+package com.example.bankcards.service.transfer;
+
+import com.example.bankcards.dto.TransactionRequestDto;
+import com.example.bankcards.entity.Transaction;
+
+/**
+ * Способ проведения перевода между картами. Вызывается внутри уже открытой транзакции,
+ * повторы при конфликтах блокировок выполняет вызывающая сторона.
+ */
+public interface TransferStrategy {
+
+    enum Type {
+        JPA,
+        SQL,
+        LEDGER
+    }
+
+    Type type();
+
+    Transaction transfer(TransactionRequestDto request);
+
+    /**
+     * Перевод по ключу идемпотентности. Стратегиям, проводящим перевод в транзакции вызывающего, ключ не нужен:
+     * отметка о завершении ключа фиксируется вместе со списанием.
+     */
+    default Transaction transfer(TransactionRequestDto request, String idempotencyKey) {
+        return transfer(request);
+    }
+}
@@ -0,0 +1,90 @@
+package com.example.bankcards.benchmark;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Поиск по фрагменту номера карты на PostgreSQL: LIKE '%...%' без индекса и с GIN-индексом pg_trgm.
+ * Работает с отдельной таблицей bench_cards, заполняет её один раз (по умолчанию 10 млн строк).
+ * <p>
+ * Запуск: java -cp ... CardNumberSearchBenchmark -Dbench.url=jdbc:postgresql://localhost:5432/bank
+ * -Dbench.user=postgres -Dbench.password=postgres [-Dbench.rows=10000000] [-Dbench.queries=200]
+ */
+public class CardNumberSearchBenchmark {
+
+    private static final String SEARCH_SQL =
+            "select id, card_number from bench_cards where card_number like ? order by id desc limit 20";
+
+    public static void main(String[] args) throws SQLException {
+        String url = System.getProperty("bench.url", "jdbc:postgresql://localhost:5432/bank");
+        long rows = Long.getLong("bench.rows", 10_000_000L);
+        int queries = Integer.getInteger("bench.queries", 200);
+
+        try (Connection connection = DriverManager.getConnection(url,
+                System.getProperty("bench.user", "postgres"), System.getProperty("bench.password", "postgres"))) {
+            seed(connection, rows);
+
+            execute(connection, "drop index if exists idx_bench_cards_number_trgm");
+            report("LIKE, seq scan", measure(connection, queries));
+
+            execute(connection, "create extension if not exists pg_trgm");
+            execute(connection, "create index idx_bench_cards_number_trgm on bench_cards using gin (card_number gin_trgm_ops)");
+            execute(connection, "analyze bench_cards");
+            report("LIKE, pg_trgm GIN", measure(connection, queries));
+        }
+    }
+
+    private static void seed(Connection connection, long rows) throws SQLException {
+        execute(connection, "create table if not exists bench_cards (id bigint primary key, card_number varchar(16) not null)");
+        try (Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery("select count(*) from bench_cards")) {
+            resultSet.next();
+            if (resultSet.getLong(1) >= rows) {
+                return;
+            }
+        }
+        execute(connection, "truncate bench_cards");
+        execute(connection, "insert into bench_cards select g, lpad((4000000000000000 + g * 7919 % 1000000000000000)::text, 16, '0') "
+                + "from generate_series(1, " + rows + ") g");
+        execute(connection, "analyze bench_cards");
+    }
+
+    private static long[] measure(Connection connection, int queries) throws SQLException {
+        long[] latencies = new long[queries];
+        try (PreparedStatement statement = connection.prepareStatement(SEARCH_SQL)) {
+            for (int i = 0; i < queries; i++) {
+                statement.setString(1, "%" + String.format("%06d", ThreadLocalRandom.current().nextInt(1_000_000)) + "%");
+                long start = System.nanoTime();
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    while (resultSet.next()) {
+                        resultSet.getLong(1);
+                    }
+                }
+                latencies[i] = System.nanoTime() - start;
+            }
+        }
+        Arrays.sort(latencies);
+        return latencies;
+    }
+
+    private static void report(String name, long[] latencies) {
+        System.out.printf("%-20s p50 %8.2f ms  p99 %8.2f ms%n", name,
+                percentile(latencies, 0.50), percentile(latencies, 0.99));
+    }
+
+    private static double percentile(long[] sorted, double percentile) {
+        return sorted[(int) Math.ceil(sorted.length * percentile) - 1] / 1_000_000.0;
+    }
+
+    private static void execute(Connection connection, String sql) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute(sql);
+        }
+    }
+}
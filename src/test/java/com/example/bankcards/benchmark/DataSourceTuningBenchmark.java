@@ -0,0 +1,130 @@
+package com.example.bankcards.benchmark;
+
+import com.example.bankcards.BankCardsApplication;
+import com.example.bankcards.dto.BatchTransferMode;
+import com.example.bankcards.dto.TransactionRequestDto;
+import com.example.bankcards.entity.Money;
+import com.example.bankcards.entity.Role;
+import com.example.bankcards.entity.User;
+import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.repository.RoleRepository;
+import com.example.bankcards.repository.UserRepository;
+import com.example.bankcards.service.TransactionServiceImpl;
+import com.example.bankcards.support.TestEntities;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Переводы и пакетные переводы на PostgreSQL с настройками по умолчанию и с профилем prod
+ * (reWriteBatchedInserts, серверные prepared statements, пакетные UPDATE с версией).
+ * Каждый прогон поднимает приложение без веб-сервера, создаёт своего пользователя с двумя картами
+ * и удаляет их по окончании.
+ * <p>
+ * Запуск: java -cp ... DataSourceTuningBenchmark -Dbench.url=jdbc:postgresql://localhost:5432/bank
+ * -Dbench.user=bank -Dbench.password=bank [-Dbench.transfers=5000] [-Dbench.batches=20] [-Dbench.batch-size=1000]
+ */
+public class DataSourceTuningBenchmark {
+
+    private static final String CARD_A = "9900000000000001";
+    private static final String CARD_B = "9900000000000002";
+
+    public static void main(String[] args) {
+        int transfers = Integer.getInteger("bench.transfers", 5000);
+        int batches = Integer.getInteger("bench.batches", 20);
+        int batchSize = Integer.getInteger("bench.batch-size", 1000);
+
+        for (String profile : new String[]{"default", "prod"}) {
+            try (ConfigurableApplicationContext context = start(profile)) {
+                List<Long> cardIds = seed(context);
+                try {
+                    TransactionServiceImpl transactionService = context.getBean(TransactionServiceImpl.class);
+                    measureTransfers(transactionService, transfers / 10); // прогрев
+                    long[] latencies = measureTransfers(transactionService, transfers);
+                    long[] batchLatencies = measureBatches(transactionService, batches, batchSize);
+
+                    System.out.printf("%-8s transfer p50 %6.2f ms p99 %6.2f ms | batch of %d p50 %8.2f ms (%.0f rows/s)%n",
+                            profile, percentile(latencies, 0.50), percentile(latencies, 0.99), batchSize,
+                            percentile(batchLatencies, 0.50), batchSize * 1000 / percentile(batchLatencies, 0.50));
+                } finally {
+                    cleanUp(context, cardIds);
+                }
+            }
+        }
+    }
+
+    private static ConfigurableApplicationContext start(String profile) {
+        return new SpringApplicationBuilder(BankCardsApplication.class)
+                .web(WebApplicationType.NONE)
+                .profiles(profile)
+                .properties(
+                        "spring.datasource.url=" + System.getProperty("bench.url", "jdbc:postgresql://localhost:5432/bank"),
+                        "spring.datasource.username=" + System.getProperty("bench.user", "bank"),
+                        "spring.datasource.password=" + System.getProperty("bench.password", "bank"),
+                        "logging.level.root=WARN")
+                .run();
+    }
+
+    private static long[] measureTransfers(TransactionServiceImpl transactionService, int count) {
+        long[] latencies = new long[count];
+        for (int i = 0; i < count; i++) {
+            long start = System.nanoTime();
+            transactionService.createTransfer(request(i));
+            latencies[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(latencies);
+        return latencies;
+    }
+
+    private static long[] measureBatches(TransactionServiceImpl transactionService, int count, int batchSize) {
+        List<TransactionRequestDto> batch = new ArrayList<>(batchSize);
+        for (int i = 0; i < batchSize; i++) {
+            batch.add(request(i));
+        }
+        long[] latencies = new long[count];
+        for (int i = 0; i < count; i++) {
+            long start = System.nanoTime();
+            transactionService.createTransfers(batch, BatchTransferMode.ATOMIC);
+            latencies[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(latencies);
+        return latencies;
+    }
+
+    private static TransactionRequestDto request(int i) {
+        return i % 2 == 0
+                ? new TransactionRequestDto(CARD_A, CARD_B, Money.of("1.00"))
+                : new TransactionRequestDto(CARD_B, CARD_A, Money.of("1.00"));
+    }
+
+    private static List<Long> seed(ConfigurableApplicationContext context) {
+        User owner = TestEntities.user("bench-datasource@bank.com");
+        owner.setRole(context.getBean(RoleRepository.class).findById("USER")
+                .orElseGet(() -> new Role("USER", "Regular user")));
+        owner = context.getBean(UserRepository.class).save(owner);
+
+        CardRepository cardRepository = context.getBean(CardRepository.class);
+        List<Long> cardIds = new ArrayList<>();
+        for (String number : new String[]{CARD_A, CARD_B}) {
+            cardIds.add(cardRepository.save(TestEntities.card(number, owner, Money.of("1000000.00"))).getId());
+        }
+        return cardIds;
+    }
+
+    private static void cleanUp(ConfigurableApplicationContext context, List<Long> cardIds) {
+        JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+        jdbcTemplate.update("delete from transactions where from_card_id in (?, ?) or to_card_id in (?, ?)",
+                cardIds.get(0), cardIds.get(1), cardIds.get(0), cardIds.get(1));
+        jdbcTemplate.update("delete from cards where id in (?, ?)", cardIds.get(0), cardIds.get(1));
+        jdbcTemplate.update("delete from users where username = ?", "bench-datasource@bank.com");
+    }
+
+    private static double percentile(long[] sorted, double p) {
+        return sorted[(int) Math.ceil(sorted.length * p) - 1] / 1_000_000.0;
+    }
+}
@@ -0,0 +1,382 @@
+package com.example.bankcards.benchmark;
+
+import com.example.bankcards.BankCardsApplication;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.HdrHistogram.Histogram;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Date;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Нагрузочный прогон по HTTP без внешних зависимостей: приложение с профилем test поднимается на случайном порту
+ * поверх H2 в режиме совместимости с PostgreSQL (changelog Liquibase содержит SQL только для PostgreSQL,
+ * поэтому схему, как и в тестах, строит Hibernate).
+ * В БД заводятся bench.users пользователей по bench.cards-per-user карт; bench.clients клиентов
+ * (каждый — свой пользователь) в замкнутом цикле выполняют смесь операций bench.mix:
+ * login — POST /api/auth/login, balance — GET /api/cards/{id}/balance, cards — GET /api/cards/user/{id},
+ * transfer — POST /api/transactions, history — GET /api/transactions/{cardNumber}.
+ * Доля bench.hot-share переводов зачисляется на одну «горячую» карту, остальные — на случайную карту.
+ * Случайность задаётся bench.seed, поэтому последовательность операций каждого клиента воспроизводима.
+ * <p>
+ * По каждой операции печатаются пропускная способность и перцентили задержки HdrHistogram,
+ * число ответов с кодом не 2xx (errors) и отдельно — число оборванных запросов (broken): ответ 2xx,
+ * тело которого не дочиталось, не разбирается как JSON или не содержит ожидаемого поля, либо обрыв соединения.
+ * Оборванные запросы не считаются успешными. Полные распределения пишутся в bench.output/&lt;операция&gt;.hgrm. Задержка меряется от отправки запроса
+ * до ответа; в замкнутом цикле медленный ответ задерживает следующие запросы клиента (coordinated omission),
+ * поэтому хвосты при перегрузке занижены.
+ * <p>
+ * Запуск: java -cp ... HttpLoadHarness [-Dbench.users=1000] [-Dbench.cards-per-user=3] [-Dbench.clients=32]
+ * [-Dbench.warmup=10s] [-Dbench.duration=60s] [-Dbench.mix=login:2,balance:40,cards:15,transfer:30,history:13]
+ * [-Dbench.hot-share=0.2] [-Dbench.seed=42] [-Dbench.output=target/load-harness]
+ */
+public class HttpLoadHarness {
+
+    private static final String PASSWORD = "LoadTest@123";
+    private static final ObjectMapper JSON = new ObjectMapper().enable(DeserializationFeature.FAIL_ON_TRAILING_TOKENS);
+    private static final long MAX_LATENCY_NANOS = TimeUnit.MINUTES.toNanos(1);
+
+    enum Operation { LOGIN, BALANCE, CARDS, TRANSFER, HISTORY }
+
+    public static void main(String[] args) throws Exception {
+        int users = Integer.getInteger("bench.users", 1000);
+        int cardsPerUser = Integer.getInteger("bench.cards-per-user", 3);
+        int clients = Math.min(Integer.getInteger("bench.clients", 32), users);
+        Duration warmup = Duration.parse("PT" + System.getProperty("bench.warmup", "10s"));
+        Duration duration = Duration.parse("PT" + System.getProperty("bench.duration", "60s"));
+        Map<Operation, Integer> mix = parseMix(System.getProperty("bench.mix", "login:2,balance:40,cards:15,transfer:30,history:13"));
+        double hotShare = Double.parseDouble(System.getProperty("bench.hot-share", "0.2"));
+        long seed = Long.getLong("bench.seed", 42L);
+        Path output = Path.of(System.getProperty("bench.output", "target/load-harness"));
+
+        try (ConfigurableApplicationContext context = start()) {
+            Seed data = seed(context, users, cardsPerUser);
+            String baseUrl = "http://localhost:" + ((WebServerApplicationContext) context).getWebServer().getPort();
+            System.out.printf("Seeded %d users, %d cards; %d clients, mix %s, hot-card share %.2f%n",
+                    users, data.cardIds().length, clients, mix, hotShare);
+
+            HttpClient http = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+            List<Client> workers = new ArrayList<>();
+            for (int i = 0; i < clients; i++) {
+                workers.add(new Client(http, baseUrl, data, i, mix, hotShare, new Random(seed + i)));
+            }
+
+            ExecutorService executor = Executors.newFixedThreadPool(clients);
+            List<Future<?>> futures = new ArrayList<>();
+            for (Client worker : workers) {
+                futures.add(executor.submit(worker));
+            }
+            Thread.sleep(warmup.toMillis());
+            workers.forEach(Client::startRecording);
+            long start = System.nanoTime();
+            Thread.sleep(duration.toMillis());
+            workers.forEach(Client::stop);
+            double elapsedSeconds = (System.nanoTime() - start) / 1e9;
+            for (Future<?> future : futures) {
+                future.get();
+            }
+            executor.shutdown();
+
+            report(workers, elapsedSeconds, output);
+        }
+    }
+
+    private static ConfigurableApplicationContext start() {
+        // Аргументы командной строки, а не properties(): те лишь значения по умолчанию и проигрывают файлам профиля
+        return new SpringApplicationBuilder(BankCardsApplication.class)
+                .profiles("test")
+                .run(
+                        "--server.port=0",
+                        "--spring.datasource.url=jdbc:h2:mem:load-harness;MODE=PostgreSQL;DEFAULT_NULL_ORDERING=HIGH;"
+                                + "DB_CLOSE_DELAY=-1;LOCK_TIMEOUT=10000",
+                        "--logging.level.root=WARN");
+    }
+
+    private static Seed seed(ConfigurableApplicationContext context, int users, int cardsPerUser) {
+        JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+        // Схема профиля test строится Hibernate по @OneToOne и получает уникальный ключ на users.role_id
+        // (в PostgreSQL его снимает миграция drop-unique-roleid-on-users). Внешний ключ H2 держится за тот же индекс,
+        // поэтому снимаются оба ограничения, а внешний ключ создаётся заново
+        jdbcTemplate.queryForList("select distinct u.constraint_name from information_schema.constraint_column_usage u "
+                        + "join information_schema.table_constraints c on c.constraint_name = u.constraint_name "
+                        + "where c.table_name = 'USERS' and u.column_name = 'ROLE_ID'", String.class)
+                .forEach(constraint -> jdbcTemplate.execute("alter table users drop constraint " + constraint));
+        jdbcTemplate.execute("alter table users add foreign key (role_id) references roles (id)");
+        if (jdbcTemplate.queryForObject("select count(*) from roles where id = 'USER'", Integer.class) == 0) {
+            jdbcTemplate.update("insert into roles (id, description) values ('USER', 'Regular user')");
+        }
+        String passwordHash = context.getBean(PasswordEncoder.class).encode(PASSWORD);
+
+        List<Object[]> userRows = new ArrayList<>(users);
+        for (int u = 0; u < users; u++) {
+            userRows.add(new Object[]{username(u), passwordHash});
+        }
+        jdbcTemplate.batchUpdate("insert into users (username, password, role_id) values (?, ?, 'USER')", userRows);
+        long[] userIds = jdbcTemplate.queryForList("select id from users where username like 'load-%' order by username", Long.class)
+                .stream().mapToLong(Long::longValue).toArray();
+
+        Date expiration = Date.valueOf(LocalDate.now().plusYears(3));
+        List<Object[]> cardRows = new ArrayList<>(users * cardsPerUser);
+        for (int u = 0; u < users; u++) {
+            for (int c = 0; c < cardsPerUser; c++) {
+                cardRows.add(new Object[]{cardNumber(u * cardsPerUser + c), userIds[u], expiration});
+            }
+        }
+        jdbcTemplate.batchUpdate("insert into cards (card_number, owner_id, expiration_date, status, balance, version, balance_slots) "
+                + "values (?, ?, ?, 'ACTIVE', 1000000.00, 0, 0)", cardRows);
+        long[] cardIds = jdbcTemplate.queryForList("select id from cards where card_number like '77%' order by card_number", Long.class)
+                .stream().mapToLong(Long::longValue).toArray();
+
+        return new Seed(userIds, cardIds, cardsPerUser);
+    }
+
+    private static Map<Operation, Integer> parseMix(String mix) {
+        Map<Operation, Integer> weights = new EnumMap<>(Operation.class);
+        for (String entry : mix.split(",")) {
+            String[] parts = entry.trim().split(":");
+            weights.put(Operation.valueOf(parts[0].trim().toUpperCase()), Integer.parseInt(parts[1].trim()));
+        }
+        return weights;
+    }
+
+    private static void report(List<Client> workers, double elapsedSeconds, Path output) throws IOException {
+        Files.createDirectories(output);
+        System.out.printf("%n%-9s %9s %7s %7s %9s %9s %9s %9s %9s %9s%n",
+                "operation", "requests", "errors", "broken", "req/s", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms");
+
+        Histogram total = new Histogram(MAX_LATENCY_NANOS, 3);
+        long totalErrors = 0;
+        long totalBroken = 0;
+        for (Operation operation : Operation.values()) {
+            Histogram histogram = new Histogram(MAX_LATENCY_NANOS, 3);
+            long errors = 0;
+            long broken = 0;
+            for (Client worker : workers) {
+                histogram.add(worker.latencies.get(operation));
+                errors += worker.errors.get(operation)[0];
+                broken += worker.broken.get(operation)[0];
+            }
+            if (histogram.getTotalCount() == 0) {
+                continue;
+            }
+            total.add(histogram);
+            totalErrors += errors;
+            totalBroken += broken;
+            print(operation.name().toLowerCase(), histogram, errors, broken, elapsedSeconds);
+            try (PrintStream out = new PrintStream(Files.newOutputStream(output.resolve(operation.name().toLowerCase() + ".hgrm")))) {
+                histogram.outputPercentileDistribution(out, 1_000_000.0);
+            }
+        }
+        print("total", total, totalErrors, totalBroken, elapsedSeconds);
+        System.out.println("Percentile distributions: " + output.toAbsolutePath());
+    }
+
+    private static void print(String name, Histogram histogram, long errors, long broken, double elapsedSeconds) {
+        System.out.printf("%-9s %9d %7d %7d %9.1f %9.2f %9.2f %9.2f %9.2f %9.2f%n",
+                name, histogram.getTotalCount(), errors, broken, histogram.getTotalCount() / elapsedSeconds,
+                histogram.getValueAtPercentile(50) / 1e6, histogram.getValueAtPercentile(90) / 1e6,
+                histogram.getValueAtPercentile(99) / 1e6, histogram.getValueAtPercentile(99.9) / 1e6,
+                histogram.getMaxValue() / 1e6);
+    }
+
+    private static String username(int user) {
+        return String.format("load-%06d@bank.com", user);
+    }
+
+    private static String cardNumber(int card) {
+        return String.format("77%014d", card);
+    }
+
+    private record Seed(long[] userIds, long[] cardIds, int cardsPerUser) {
+    }
+
+    /**
+     * Один клиент: свой пользователь, свой генератор случайных чисел и свои гистограммы,
+     * которые сводятся в отчёт после остановки.
+     */
+    private static final class Client implements Runnable {
+
+        private final HttpClient http;
+        private final String baseUrl;
+        private final Seed data;
+        private final int user;
+        private final Operation[] schedule;
+        private final double hotShare;
+        private final Random random;
+        private final Map<Operation, Histogram> latencies = new EnumMap<>(Operation.class);
+        private final Map<Operation, long[]> errors = new EnumMap<>(Operation.class);
+        private final Map<Operation, long[]> broken = new EnumMap<>(Operation.class);
+        private volatile boolean recording;
+        private volatile boolean running = true;
+        private String token;
+
+        Client(HttpClient http, String baseUrl, Seed data, int user, Map<Operation, Integer> mix, double hotShare, Random random) {
+            this.http = http;
+            this.baseUrl = baseUrl;
+            this.data = data;
+            this.user = user;
+            this.hotShare = hotShare;
+            this.random = random;
+            List<Operation> weighted = new ArrayList<>();
+            mix.forEach((operation, weight) -> {
+                for (int i = 0; i < weight; i++) {
+                    weighted.add(operation);
+                }
+            });
+            this.schedule = weighted.toArray(Operation[]::new);
+            for (Operation operation : Operation.values()) {
+                latencies.put(operation, new Histogram(MAX_LATENCY_NANOS, 3));
+                errors.put(operation, new long[1]);
+                broken.put(operation, new long[1]);
+            }
+        }
+
+        void startRecording() {
+            recording = true;
+        }
+
+        void stop() {
+            running = false;
+        }
+
+        @Override
+        public void run() {
+            try {
+                token = login();
+                while (running) {
+                    Operation operation = schedule[random.nextInt(schedule.length)];
+                    HttpRequest request = request(operation);
+                    long start = System.nanoTime();
+                    int status = 0;
+                    JsonNode body = null;
+                    try {
+                        HttpResponse<String> response = http.send(request, HttpResponse.BodyHandlers.ofString());
+                        status = response.statusCode();
+                        if (status / 100 == 2) {
+                            body = complete(operation, response.body());
+                        }
+                    } catch (IOException e) {
+                        // Соединение оборвалось, в том числе посреди тела ответа
+                    }
+                    long latency = System.nanoTime() - start;
+                    if (operation == Operation.LOGIN && body != null) {
+                        token = body.get("token").asText();
+                    }
+                    if (recording) {
+                        latencies.get(operation).recordValue(Math.min(latency, MAX_LATENCY_NANOS));
+                        if (status != 0 && status / 100 != 2) {
+                            errors.get(operation)[0]++;
+                        } else if (body == null) {
+                            broken.get(operation)[0]++;
+                        }
+                    }
+                }
+            } catch (IOException e) {
+                throw new IllegalStateException("Клиент " + user + " не смог войти", e);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        private HttpRequest request(Operation operation) {
+            return switch (operation) {
+                case LOGIN -> loginRequest();
+                case BALANCE -> authorized("/api/cards/" + ownCardId() + "/balance").GET().build();
+                case CARDS -> authorized("/api/cards/user/" + data.userIds()[user] + "?size=20").GET().build();
+                case HISTORY -> authorized("/api/transactions/" + cardNumber(ownCard()) + "?limit=50").GET().build();
+                case TRANSFER -> {
+                    int to = random.nextDouble() < hotShare ? 0 : random.nextInt(data.cardIds().length);
+                    int from = ownCard();
+                    if (to == from) {
+                        to = (to + 1) % data.cardIds().length;
+                    }
+                    String body = String.format("{\"fromCardNumber\":\"%s\",\"toCardNumber\":\"%s\",\"amount\":%d.%02d}",
+                            cardNumber(from), cardNumber(to), random.nextInt(1, 100), random.nextInt(100));
+                    yield authorized("/api/transactions")
+                            .header("Content-Type", "application/json")
+                            .POST(HttpRequest.BodyPublishers.ofString(body))
+                            .build();
+                }
+            };
+        }
+
+        private int ownCard() {
+            return user * data.cardsPerUser() + random.nextInt(data.cardsPerUser());
+        }
+
+        private long ownCardId() {
+            return data.cardIds()[ownCard()];
+        }
+
+        private HttpRequest.Builder authorized(String path) {
+            return HttpRequest.newBuilder(URI.create(baseUrl + path)).header("Authorization", "Bearer " + token);
+        }
+
+        private HttpRequest loginRequest() {
+            String body = String.format("{\"username\":\"%s\",\"password\":\"%s\"}", username(user), PASSWORD);
+            return HttpRequest.newBuilder(URI.create(baseUrl + "/api/auth/login"))
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString(body))
+                    .build();
+        }
+
+        private String login() throws IOException, InterruptedException {
+            HttpResponse<String> response = http.send(loginRequest(), HttpResponse.BodyHandlers.ofString());
+            if (response.statusCode() != 200) {
+                throw new IllegalStateException("Не удалось войти пользователем " + username(user) + ": " + response.statusCode());
+            }
+            JsonNode body = complete(Operation.LOGIN, response.body());
+            if (body == null) {
+                throw new IllegalStateException("В ответе на логин нет токена: " + response.body());
+            }
+            return body.get("token").asText();
+        }
+
+        /**
+         * Тело успешного ответа целиком, если это JSON с ожидаемым для операции полем, иначе null.
+         */
+        private static JsonNode complete(Operation operation, String body) {
+            JsonNode json;
+            try {
+                json = JSON.readTree(body);
+            } catch (JsonProcessingException e) {
+                return null;
+            }
+            if (json == null || json.isMissingNode()) {
+                return null;
+            }
+            boolean expected = switch (operation) {
+                case LOGIN -> json.path("token").isTextual();
+                case TRANSFER -> json.path("id").isNumber();
+                case CARDS, HISTORY -> json.path("content").isArray();
+                case BALANCE -> json.isNumber();
+            };
+            return expected ? json : null;
+        }
+    }
+}
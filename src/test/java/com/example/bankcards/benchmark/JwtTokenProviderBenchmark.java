@@ -0,0 +1,68 @@
+package com.example.bankcards.benchmark;
+
+import com.example.bankcards.security.JwtTokenProvider;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Стоимость выпуска токена при логине и аутентификации одного запроса в JwtAuthenticationFilter.
+ * legacyPerRequest воспроизводит прежнюю схему: ключ и парсер создаются заново,
+ * токен разбирается дважды (validateToken + getUsernameFromToken).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JwtTokenProviderBenchmark {
+
+    private static final String SECRET = "your-secret-key-here-make-it-long-and-secure-for-production";
+
+    private JwtTokenProvider cachedProvider;
+    private JwtTokenProvider uncachedProvider;
+    private String token;
+
+    @Setup
+    public void setUp() {
+        cachedProvider = new JwtTokenProvider(SECRET, 86_400_000, 10_000);
+        uncachedProvider = new JwtTokenProvider(SECRET, 86_400_000, 0);
+        token = cachedProvider.generateToken(2L, "user@bank.com", "USER");
+    }
+
+    @Benchmark
+    public String generate() {
+        return cachedProvider.generateToken(2L, "user@bank.com", "USER");
+    }
+
+    @Benchmark
+    public String legacyPerRequest() {
+        Jwts.parser().verifyWith(Keys.hmacShaKeyFor(SECRET.getBytes())).build().parseSignedClaims(token);
+        Claims claims = Jwts.parser().verifyWith(Keys.hmacShaKeyFor(SECRET.getBytes())).build()
+                .parseSignedClaims(token).getPayload();
+        return claims.getSubject();
+    }
+
+    @Benchmark
+    public Claims parseUncached() {
+        return uncachedProvider.parse(token).orElseThrow();
+    }
+
+    @Benchmark
+    public Claims parseCached() {
+        return cachedProvider.parse(token).orElseThrow();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(JwtTokenProviderBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,80 @@
+package com.example.bankcards.benchmark;
+
+import com.example.bankcards.dto.CardResponseDto;
+import com.example.bankcards.dto.CardSearchResponse;
+import com.example.bankcards.dto.TransactionResponseDto;
+import com.example.bankcards.dto.TransactionStatementRow;
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.entity.Money;
+import com.example.bankcards.entity.enums.CardStatus;
+import com.example.bankcards.mapper.CardMapper;
+import com.example.bankcards.mapper.TransactionMapper;
+import org.mapstruct.factory.Mappers;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Маппинг сущностей в ответы API: карта в CardResponseDto и CardSearchResponse (с маскированием номера),
+ * строка истории переводов в TransactionResponseDto.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MapperBenchmark {
+
+    private CardMapper cardMapper;
+    private TransactionMapper transactionMapper;
+    private Card card;
+    private TransactionStatementRow row;
+
+    @Setup
+    public void setUp() {
+        cardMapper = Mappers.getMapper(CardMapper.class);
+        transactionMapper = Mappers.getMapper(TransactionMapper.class);
+
+        card = new Card();
+        card.setId(1L);
+        card.setCardNumber("4000123412341234");
+        card.setExpirationDate(LocalDate.of(2030, 1, 31));
+        card.setStatus(CardStatus.ACTIVE);
+        card.setBalance(Money.of("1500.00"));
+
+        row = new TransactionStatementRow(1, LocalDateTime.of(2026, 1, 1, 12, 0),
+                card.getId(), card.getCardNumber(), 2L, "4000123412345678", Money.of("25.00"));
+    }
+
+    @Benchmark
+    public CardResponseDto cardToCardResponseDto() {
+        return cardMapper.cardToCardResponseDto(card);
+    }
+
+    @Benchmark
+    public CardSearchResponse cardToCardSearchResponse() {
+        return cardMapper.cardToCardSearchResponse(card);
+    }
+
+    @Benchmark
+    public String maskCardNumber() {
+        return cardMapper.maskCardNumber(card.getCardNumber());
+    }
+
+    @Benchmark
+    public TransactionResponseDto transactionToDto() {
+        return transactionMapper.toDto(row, card.getId());
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(MapperBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
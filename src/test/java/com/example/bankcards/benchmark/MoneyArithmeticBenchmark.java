@@ -0,0 +1,95 @@
+package com.example.bankcards.benchmark;
+
+import com.example.bankcards.entity.Money;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.math.BigDecimal;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Проверка суммы и арифметика перевода (TransactionServiceImpl + JpaTransferStrategy):
+ * сумма больше нуля, на карте отправителя хватает средств, списание и зачисление.
+ * Суммы в запросах приходят с разной точностью ("25", "25.5", "25.50"), балансы из БД — с двумя знаками,
+ * поэтому BigDecimal выравнивает масштаб при сравнении и сложении. Запускать с -prof gc, чтобы
+ * увидеть gc.alloc.rate.norm — байты на перевод.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MoneyArithmeticBenchmark {
+
+    private static final int AMOUNTS = 1024;
+
+    private BigDecimal[] decimalAmounts;
+    private Money[] moneyAmounts;
+    private BigDecimal decimalFrom;
+    private BigDecimal decimalTo;
+    private Money moneyFrom;
+    private Money moneyTo;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        decimalAmounts = new BigDecimal[AMOUNTS];
+        moneyAmounts = new Money[AMOUNTS];
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (int i = 0; i < AMOUNTS; i++) {
+            BigDecimal cents = BigDecimal.valueOf(random.nextInt(1, 100_000), 2);
+            decimalAmounts[i] = i % 3 == 0 ? cents.stripTrailingZeros() : cents;
+            moneyAmounts[i] = Money.of(decimalAmounts[i]);
+        }
+        decimalFrom = new BigDecimal("1000000000.00");
+        decimalTo = new BigDecimal("0.00");
+        moneyFrom = Money.of(decimalFrom);
+        moneyTo = Money.of(decimalTo);
+    }
+
+    @Benchmark
+    public BigDecimal bigDecimalTransfer() {
+        BigDecimal amount = decimalAmounts[next++ & (AMOUNTS - 1)];
+        if (amount.compareTo(BigDecimal.ZERO) <= 0 || decimalFrom.compareTo(amount) < 0) {
+            swapDecimal();
+            return decimalFrom;
+        }
+        decimalFrom = decimalFrom.subtract(amount);
+        decimalTo = decimalTo.add(amount);
+        return decimalTo;
+    }
+
+    @Benchmark
+    public Money moneyTransfer() {
+        Money amount = moneyAmounts[next++ & (AMOUNTS - 1)];
+        if (!amount.isPositive() || moneyFrom.isLessThan(amount)) {
+            swapMoney();
+            return moneyFrom;
+        }
+        moneyFrom = moneyFrom.minus(amount);
+        moneyTo = moneyTo.plus(amount);
+        return moneyTo;
+    }
+
+    private void swapDecimal() {
+        BigDecimal from = decimalFrom;
+        decimalFrom = decimalTo;
+        decimalTo = from;
+    }
+
+    private void swapMoney() {
+        Money from = moneyFrom;
+        moneyFrom = moneyTo;
+        moneyTo = from;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(MoneyArithmeticBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
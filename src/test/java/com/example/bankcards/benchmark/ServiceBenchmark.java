@@ -0,0 +1,118 @@
+package com.example.bankcards.benchmark;
+
+import com.example.bankcards.BankCardsApplication;
+import com.example.bankcards.dto.CardBalanceSnapshot;
+import com.example.bankcards.dto.CardResponseDto;
+import com.example.bankcards.dto.CardSearchRequest;
+import com.example.bankcards.dto.CardSearchResponse;
+import com.example.bankcards.dto.TransactionHistoryRequest;
+import com.example.bankcards.dto.TransactionPageResponseDto;
+import com.example.bankcards.dto.TransactionRequestDto;
+import com.example.bankcards.dto.TransactionResponseDto;
+import com.example.bankcards.entity.Money;
+import com.example.bankcards.entity.User;
+import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.repository.UserRepository;
+import com.example.bankcards.service.CardServiceImpl;
+import com.example.bankcards.service.TransactionServiceImpl;
+import com.example.bankcards.support.TestEntities;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Вызовы TransactionServiceImpl и CardServiceImpl целиком (транзакция, Hibernate, H2 в памяти)
+ * в контексте приложения с профилем test без веб-сервера. История переводов растёт
+ * по ходу createTransfer, поэтому страница истории читается с индекса, а не со всей таблицы.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ServiceBenchmark {
+
+    private static final String CARD_A = "9800000000000001";
+    private static final String CARD_B = "9800000000000002";
+    private static final TransactionHistoryRequest ALL = new TransactionHistoryRequest(null, null, null, null, null);
+
+    private ConfigurableApplicationContext context;
+    private TransactionServiceImpl transactionService;
+    private CardServiceImpl cardService;
+    private Long ownerId;
+    private Long cardId;
+    private TransactionRequestDto forward;
+    private TransactionRequestDto backward;
+    private boolean reverse;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new SpringApplicationBuilder(BankCardsApplication.class)
+                .web(WebApplicationType.NONE)
+                .profiles("test")
+                .properties(
+                        "spring.datasource.url=jdbc:h2:mem:service-benchmark;DB_CLOSE_DELAY=-1",
+                        "logging.level.root=WARN")
+                .run();
+        transactionService = context.getBean(TransactionServiceImpl.class);
+        cardService = context.getBean(CardServiceImpl.class);
+
+        User owner = context.getBean(UserRepository.class).save(TestEntities.user("bench-service@bank.com"));
+        ownerId = owner.getId();
+
+        CardRepository cardRepository = context.getBean(CardRepository.class);
+        cardId = cardRepository.save(TestEntities.card(CARD_A, owner, Money.of("1000000.00"))).getId();
+        cardRepository.save(TestEntities.card(CARD_B, owner, Money.of("1000000.00")));
+        forward = new TransactionRequestDto(CARD_A, CARD_B, Money.of("1.00"));
+        backward = new TransactionRequestDto(CARD_B, CARD_A, Money.of("1.00"));
+        for (int i = 0; i < 100; i++) {
+            createTransfer();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public TransactionResponseDto createTransfer() {
+        reverse = !reverse;
+        return transactionService.createTransfer(reverse ? backward : forward);
+    }
+
+    @Benchmark
+    public CardBalanceSnapshot getCardBalance() {
+        return cardService.getCardBalance(cardId);
+    }
+
+    @Benchmark
+    public CardResponseDto getCardById() {
+        return cardService.getCardById(cardId);
+    }
+
+    @Benchmark
+    public Page<CardSearchResponse> getUserCards() {
+        return cardService.getUserCards(ownerId, new CardSearchRequest(null, null), PageRequest.of(0, 20));
+    }
+
+    @Benchmark
+    public TransactionPageResponseDto getTransactionsByCardId() {
+        return transactionService.getTransactionsByCardId(CARD_A, ALL, null, 50);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(ServiceBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
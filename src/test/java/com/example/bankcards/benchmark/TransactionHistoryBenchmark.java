@@ -0,0 +1,145 @@
+package com.example.bankcards.benchmark;
+
+import com.example.bankcards.BankCardsApplication;
+import com.example.bankcards.dto.TransactionHistoryRequest;
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.entity.Money;
+import com.example.bankcards.entity.Transaction;
+import com.example.bankcards.entity.User;
+import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.repository.TransactionRepository;
+import com.example.bankcards.repository.UserRepository;
+import com.example.bankcards.service.TransactionServiceImpl;
+import com.example.bankcards.support.TestEntities;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Страница истории (50 строк) по карте с 10 000 переводов, от запроса до JSON-ответа.
+ * entityGraph — прежний путь: сущности Transaction с обеими картами через fetch join,
+ * сериализованные в ответ вида {"transaction": {...}}. flatProjection — текущий
+ * TransactionServiceImpl.getTransactionsByCardId: конструкторная проекция в плоский TransactionResponseDto.
+ * Для сравнения аллокаций запускать с -prof gc.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TransactionHistoryBenchmark {
+
+    private static final String CARD = "9700000000000001";
+    private static final int TRANSACTIONS = 10_000;
+    private static final int COUNTERPARTIES = 20;
+    private static final int PAGE_SIZE = 50;
+    private static final TransactionHistoryRequest ALL = new TransactionHistoryRequest(null, null, null, null, null);
+
+    private ConfigurableApplicationContext context;
+    private TransactionServiceImpl transactionService;
+    private TransactionRepository transactionRepository;
+    private TransactionTemplate readOnly;
+    private EntityManager entityManager;
+    private ObjectMapper objectMapper;
+    private Long cardId;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new SpringApplicationBuilder(BankCardsApplication.class)
+                .web(WebApplicationType.NONE)
+                .profiles("test")
+                .run("--spring.datasource.url=jdbc:h2:mem:history-benchmark;DB_CLOSE_DELAY=-1",
+                        "--logging.level.root=WARN");
+        transactionService = context.getBean(TransactionServiceImpl.class);
+        transactionRepository = context.getBean(TransactionRepository.class);
+        objectMapper = context.getBean(ObjectMapper.class);
+        entityManager = context.getBean(EntityManager.class);
+        readOnly = new TransactionTemplate(context.getBean(TransactionTemplate.class).getTransactionManager());
+        readOnly.setReadOnly(true);
+
+        User owner = context.getBean(UserRepository.class).save(TestEntities.user("bench-history@bank.com"));
+
+        CardRepository cardRepository = context.getBean(CardRepository.class);
+        Card card = cardRepository.save(TestEntities.card(CARD, owner, Money.of("1000000.00")));
+        cardId = card.getId();
+        List<Card> counterparties = new ArrayList<>();
+        for (int i = 0; i < COUNTERPARTIES; i++) {
+            String number = String.format("97000000000001%02d", i);
+            counterparties.add(cardRepository.save(TestEntities.card(number, owner, Money.of("1000000.00"))));
+        }
+
+        LocalDateTime start = LocalDateTime.now().minusDays(30);
+        List<Transaction> transactions = new ArrayList<>();
+        for (int i = 0; i < TRANSACTIONS; i++) {
+            Card other = counterparties.get(i % COUNTERPARTIES);
+            boolean outgoing = i % 2 == 0;
+            transactions.add(new Transaction(null, outgoing ? card : other, outgoing ? other : card,
+                    Money.of("1.00"), start.plusMinutes(i)));
+        }
+        transactionRepository.saveAll(transactions);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public String entityGraph() {
+        return readOnly.execute(status -> {
+            List<Transaction> rows = new ArrayList<>();
+            rows.addAll(findPage("fromCard"));
+            rows.addAll(findPage("toCard"));
+            rows.sort((a, b) -> b.getTimestamp().compareTo(a.getTimestamp()));
+            List<Map<String, Transaction>> content = rows.subList(0, PAGE_SIZE).stream()
+                    .map(transaction -> Map.of("transaction", transaction))
+                    .toList();
+            return toJson(Map.of("content", content));
+        });
+    }
+
+    @Benchmark
+    public String flatProjection() {
+        return toJson(transactionService.getTransactionsByCardId(CARD, ALL, null, PAGE_SIZE));
+    }
+
+    private List<Transaction> findPage(String side) {
+        return entityManager.createQuery("""
+                        select t from Transaction t join fetch t.fromCard join fetch t.toCard
+                        where t.%s.id = :cardId
+                        order by t.timestamp desc, t.id desc
+                        """.formatted(side), Transaction.class)
+                .setParameter("cardId", cardId)
+                .setMaxResults(PAGE_SIZE + 1)
+                .getResultList();
+    }
+
+    private String toJson(Object value) {
+        try {
+            return objectMapper.writeValueAsString(value);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(TransactionHistoryBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -5,6 +5,7 @@ import com.example.bankcards.dto.AuthResponseDto;
 import com.example.bankcards.entity.Role;
 import com.example.bankcards.entity.User;
 import com.example.bankcards.security.JwtTokenProvider;
+import com.example.bankcards.service.UserServiceImpl;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -33,7 +34,7 @@ class AuthControllerTest {
     private JwtTokenProvider jwtTokenProvider;
 
     @Mock
-    private UserService userService;
+    private UserServiceImpl userService;
 
     @InjectMocks
     private AuthController authController;
@@ -77,10 +78,7 @@ class AuthControllerTest {
 
         when(userService.existsByUsername("testUser")).thenReturn(false);
         when(userService.createUser("testUser", "password", "USER")).thenReturn(testUser);
-        
-        Authentication authentication = mock(Authentication.class);
-        when(authenticationManager.authenticate(any())).thenReturn(authentication);
-        when(jwtTokenProvider.generateToken(authentication)).thenReturn("testToken");
+        when(jwtTokenProvider.generateToken(1L, "testUser", "USER")).thenReturn("testToken");
 
 
         ResponseEntity<AuthResponseDto> response = authController.registerUser(validRequest);
@@ -92,6 +90,7 @@ class AuthControllerTest {
         
         verify(userService).existsByUsername("testUser");
         verify(userService).createUser("testUser", "password", "USER");
+        verify(authenticationManager, never()).authenticate(any());
     }
 
     @Test
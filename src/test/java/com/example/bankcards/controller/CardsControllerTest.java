@@ -0,0 +1,74 @@
+package com.example.bankcards.controller;
+
+import com.example.bankcards.dto.CardBalanceSnapshot;
+import com.example.bankcards.entity.Money;
+import com.example.bankcards.entity.enums.CardStatus;
+import com.example.bankcards.service.CardServiceImpl;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class CardsControllerTest {
+
+    @Mock
+    private CardServiceImpl cardService;
+
+    @InjectMocks
+    private CardsControllerImpl cardsController;
+
+    @Test
+    void getCardBalance_ReturnsBalanceWithVersionETag() {
+        when(cardService.getCardBalance(1L))
+                .thenReturn(new CardBalanceSnapshot(1L, Money.of("150.00"), CardStatus.ACTIVE, 3L));
+
+        ResponseEntity<BigDecimal> response = cardsController.getCardBalance(1L, webRequest(null));
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals("\"3\"", response.getHeaders().getETag());
+        assertEquals(new BigDecimal("150.00"), response.getBody());
+    }
+
+    @Test
+    void getCardBalance_MatchingIfNoneMatch_ReturnsNotModified() {
+        when(cardService.getCardBalance(1L))
+                .thenReturn(new CardBalanceSnapshot(1L, Money.of("150.00"), CardStatus.ACTIVE, 3L));
+
+        ResponseEntity<BigDecimal> response = cardsController.getCardBalance(1L, webRequest("\"3\""));
+
+        assertEquals(HttpStatus.NOT_MODIFIED, response.getStatusCode());
+        assertNull(response.getBody());
+    }
+
+    @Test
+    void getCardBalance_StaleIfNoneMatch_ReturnsBalance() {
+        when(cardService.getCardBalance(1L))
+                .thenReturn(new CardBalanceSnapshot(1L, Money.of("90.00"), CardStatus.ACTIVE, 4L));
+
+        ResponseEntity<BigDecimal> response = cardsController.getCardBalance(1L, webRequest("\"3\""));
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(new BigDecimal("90.00"), response.getBody());
+    }
+
+    private ServletWebRequest webRequest(String ifNoneMatch) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/cards/1/balance");
+        if (ifNoneMatch != null) {
+            request.addHeader(HttpHeaders.IF_NONE_MATCH, ifNoneMatch);
+        }
+        return new ServletWebRequest(request, new MockHttpServletResponse());
+    }
+}
@@ -0,0 +1,137 @@
+package com.example.bankcards.controller;
+
+import com.example.bankcards.config.SqlStatementCounter;
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.entity.Money;
+import com.example.bankcards.entity.Transaction;
+import com.example.bankcards.entity.User;
+import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.repository.TransactionRepository;
+import com.example.bankcards.repository.UserRepository;
+import com.example.bankcards.security.JwtTokenProvider;
+import com.example.bankcards.support.TestEntities;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.example.bankcards.support.QueryCountAssertions.assertMaxQueries;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Бюджет SQL-запросов на эндпоинт: число запросов не должно расти с числом строк в ответе (N+1).
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class EndpointQueryCountTest {
+
+    private static final int CARDS = 10;
+    private static final int TRANSACTIONS = 40;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private SqlStatementCounter sqlStatementCounter;
+
+    @Autowired
+    private JwtTokenProvider jwtTokenProvider;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private CardRepository cardRepository;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    private User owner;
+    private List<Card> cards;
+    private String token;
+
+    @BeforeEach
+    void setUp() {
+        owner = userRepository.save(TestEntities.user("queries@bank.com"));
+        token = jwtTokenProvider.generateToken(owner.getId(), owner.getUsername(), "USER");
+
+        cards = new ArrayList<>();
+        for (int i = 0; i < CARDS; i++) {
+            cards.add(cardRepository.save(TestEntities.card(String.format("54000000000000%02d", i), owner, Money.of("1000.00"))));
+        }
+
+        LocalDateTime start = LocalDateTime.now().minusDays(1);
+        List<Transaction> transactions = new ArrayList<>();
+        for (int i = 0; i < TRANSACTIONS; i++) {
+            Transaction transaction = new Transaction();
+            // Все переводы касаются первой карты, вторая сторона — каждый раз другая карта
+            Card other = cards.get(1 + i % (CARDS - 1));
+            transaction.setFromCard(i % 2 == 0 ? cards.get(0) : other);
+            transaction.setToCard(i % 2 == 0 ? other : cards.get(0));
+            transaction.setAmount(Money.of("1.00"));
+            transaction.setTimestamp(start.plusMinutes(i));
+            transactions.add(transaction);
+        }
+        transactionRepository.saveAll(transactions);
+    }
+
+    @AfterEach
+    void tearDown() {
+        transactionRepository.deleteAll();
+        cardRepository.deleteAll();
+        userRepository.deleteAll();
+    }
+
+    @Test
+    void getTransactionsByCardId_QueryCountDoesNotDependOnRows() throws Throwable {
+        assertMaxQueries(sqlStatementCounter, 3, "GET /api/transactions/{cardNumber}", () ->
+                mockMvc.perform(get("/api/transactions/" + cards.get(0).getCardNumber())
+                                .param("limit", "50")
+                                .header("Authorization", "Bearer " + token))
+                        .andExpect(status().isOk())
+                        .andExpect(jsonPath("$.content.length()").value(TRANSACTIONS)));
+
+        DistributionSummary perRequest = meterRegistry.get("http.server.requests.queries")
+                .tag("uri", "/api/transactions/{cardNumber}")
+                .summary();
+        assertEquals(3, perRequest.max());
+    }
+
+    @Test
+    void getUserCards_QueryCountDoesNotDependOnRows() throws Throwable {
+        assertMaxQueries(sqlStatementCounter, 2, "GET /api/cards/user/{userId}", () ->
+                mockMvc.perform(get("/api/cards/user/" + owner.getId())
+                                .param("size", "20")
+                                .header("Authorization", "Bearer " + token))
+                        .andExpect(status().isOk())
+                        .andExpect(jsonPath("$.content.length()").value(CARDS)));
+    }
+
+    @Test
+    void getUserCardsSlice_QueryCountDoesNotDependOnRows() throws Throwable {
+        assertMaxQueries(sqlStatementCounter, 1, "GET /api/cards/user/{userId}?mode=SLICE", () ->
+                mockMvc.perform(get("/api/cards/user/" + owner.getId())
+                                .param("mode", "SLICE")
+                                .param("size", "20")
+                                .header("Authorization", "Bearer " + token))
+                        .andExpect(status().isOk())
+                        .andExpect(jsonPath("$.content.length()").value(CARDS)));
+    }
+}
@@ -0,0 +1,113 @@
+package com.example.bankcards.controller;
+
+import com.example.bankcards.entity.Money;
+import com.example.bankcards.entity.User;
+import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.repository.IdempotencyKeyRepository;
+import com.example.bankcards.repository.TransactionRepository;
+import com.example.bankcards.repository.UserRepository;
+import com.example.bankcards.security.JwtTokenProvider;
+import com.example.bankcards.support.TestEntities;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Ответы с переводами сериализуются целиком и не раскрывают данные владельца карты.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class TransactionsControllerTest {
+
+    private static final String CARD_A = "5500000000000001";
+    private static final String CARD_B = "5500000000000002";
+    private static final String TRANSFER = """
+            {"fromCardNumber": "%s", "toCardNumber": "%s", "amount": 10.00}
+            """.formatted(CARD_A, CARD_B);
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private JwtTokenProvider jwtTokenProvider;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private CardRepository cardRepository;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private IdempotencyKeyRepository idempotencyKeyRepository;
+
+    private String token;
+
+    @BeforeEach
+    void setUp() {
+        User owner = TestEntities.user("transactions@bank.com");
+        owner.setPassword("$2a$10$secret-hash-that-must-not-leak");
+        owner = userRepository.save(owner);
+        token = jwtTokenProvider.generateToken(owner.getId(), owner.getUsername(), "USER");
+
+        cardRepository.save(TestEntities.card(CARD_A, owner, Money.of("1000.00")));
+        cardRepository.save(TestEntities.card(CARD_B, owner, Money.of("1000.00")));
+    }
+
+    @AfterEach
+    void tearDown() {
+        idempotencyKeyRepository.deleteAll();
+        transactionRepository.deleteAll();
+        cardRepository.deleteAll();
+        userRepository.deleteAll();
+    }
+
+    @Test
+    void getCardTransactions_NonEmptyPage_DoesNotExposePassword() throws Exception {
+        for (int i = 0; i < 3; i++) {
+            mockMvc.perform(post("/api/transactions")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(TRANSFER)
+                            .header("Authorization", "Bearer " + token))
+                    .andExpect(status().isOk());
+        }
+
+        String body = mockMvc.perform(get("/api/transactions/" + CARD_A)
+                        .header("Authorization", "Bearer " + token))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content.length()").value(3))
+                .andReturn().getResponse().getContentAsString();
+
+        assertFalse(body.contains("\"password\""), body);
+    }
+
+    @Test
+    void addTransfer_IdempotentReplay_DoesNotExposePassword() throws Exception {
+        for (int i = 0; i < 2; i++) {
+            String body = mockMvc.perform(post("/api/transactions")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(TRANSFER)
+                            .header("Idempotency-Key", "controller-replay")
+                            .header("Authorization", "Bearer " + token))
+                    .andExpect(status().isOk())
+                    .andReturn().getResponse().getContentAsString();
+
+            assertFalse(body.contains("\"password\""), body);
+        }
+    }
+}
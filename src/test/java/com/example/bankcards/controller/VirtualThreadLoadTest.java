@@ -0,0 +1,142 @@
+package com.example.bankcards.controller;
+
+import com.example.bankcards.BankCardsApplication;
+import com.example.bankcards.entity.Money;
+import com.example.bankcards.entity.User;
+import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.repository.UserRepository;
+import com.example.bankcards.security.JwtTokenProvider;
+import com.example.bankcards.support.TestEntities;
+import com.zaxxer.hikari.HikariDataSource;
+import org.apache.tomcat.util.threads.VirtualThreadExecutor;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.boot.web.embedded.tomcat.TomcatWebServer;
+import org.springframework.boot.web.server.WebServer;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Пропускная способность и p99 чтения карт по HTTP при CLIENTS одновременных клиентах
+ * на платформенных потоках Tomcat (threads.max = TOMCAT_THREADS) и на виртуальных потоках.
+ * В обоих режимах к БД одновременно обращаются не больше POOL_SIZE запросов — это размер пула HikariCP.
+ * Виртуальные потоки есть только на Java 21+, на более старой JDK тест пропускается.
+ * Запуск: mvn test -Pload-tests; в CI — job load-java21 (.github/workflows/load-tests.yml) на JDK 21 с -Pjava21
+ */
+@Tag("load")
+class VirtualThreadLoadTest {
+
+    private static final int CLIENTS = 200;
+    private static final int REQUESTS_PER_CLIENT = 50;
+    private static final int TOMCAT_THREADS = 20;
+    private static final int POOL_SIZE = 10;
+
+    @Test
+    void getUserCards_PlatformVsVirtualThreads() throws Exception {
+        assumeTrue(Runtime.version().feature() >= 21, "Виртуальные потоки доступны с Java 21");
+
+        Result platform = run(false);
+        Result virtual = run(true);
+
+        System.out.printf("GET /api/cards/user/{id}, %d clients: platform %.0f req/s p99 %.2f ms, "
+                        + "virtual %.0f req/s p99 %.2f ms%n",
+                CLIENTS, platform.throughput(), platform.p99(), virtual.throughput(), virtual.p99());
+
+        // Лишние запросы ждут соединения в пуле, а не получают 503
+        assertEquals(0, platform.failed());
+        assertEquals(0, virtual.failed());
+    }
+
+    private Result run(boolean virtualThreads) throws Exception {
+        String mode = virtualThreads ? "virtual" : "platform";
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(BankCardsApplication.class)
+                .profiles("test")
+                // Аргументами, а не properties(): те лишь значения по умолчанию, и application.yml их перекрывает
+                .run("--server.port=0",
+                        "--spring.threads.virtual.enabled=" + virtualThreads,
+                        "--server.tomcat.threads.max=" + TOMCAT_THREADS,
+                        "--spring.datasource.hikari.maximum-pool-size=" + POOL_SIZE,
+                        "--spring.datasource.url=jdbc:h2:mem:vt-" + mode + ";DB_CLOSE_DELAY=-1",
+                        "--logging.level.com.example.bankcards=WARN",
+                        "--logging.level.org.hibernate.SQL=WARN")) {
+            WebServer webServer = ((WebServerApplicationContext) context).getWebServer();
+            Executor executor = ((TomcatWebServer) webServer).getTomcat().getConnector().getProtocolHandler().getExecutor();
+            assertEquals(virtualThreads, executor instanceof VirtualThreadExecutor, "Tomcat executor: " + executor);
+            assertEquals(POOL_SIZE, context.getBean(HikariDataSource.class).getMaximumPoolSize());
+
+            User owner = seed(context);
+            String token = context.getBean(JwtTokenProvider.class).generateToken(owner.getId(), owner.getUsername(), "USER");
+            int port = webServer.getPort();
+            HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/api/cards/user/" + owner.getId()))
+                    .header("Authorization", "Bearer " + token)
+                    .GET()
+                    .build();
+
+            HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+            load(client, request); // прогрев
+            return load(client, request);
+        }
+    }
+
+    private Result load(HttpClient client, HttpRequest request) throws Exception {
+        long[] latencies = new long[CLIENTS * REQUESTS_PER_CLIENT];
+        AtomicInteger failed = new AtomicInteger();
+        ExecutorService clients = Executors.newFixedThreadPool(CLIENTS);
+        List<Future<?>> futures = new ArrayList<>();
+
+        long start = System.nanoTime();
+        for (int c = 0; c < CLIENTS; c++) {
+            int offset = c * REQUESTS_PER_CLIENT;
+            futures.add(clients.submit(() -> {
+                for (int i = 0; i < REQUESTS_PER_CLIENT; i++) {
+                    long requestStart = System.nanoTime();
+                    HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+                    latencies[offset + i] = System.nanoTime() - requestStart;
+                    if (response.statusCode() != 200) {
+                        failed.incrementAndGet();
+                    }
+                }
+                return null;
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        long elapsed = System.nanoTime() - start;
+        clients.shutdown();
+
+        Arrays.sort(latencies);
+        double p99 = latencies[(int) Math.ceil(latencies.length * 0.99) - 1] / 1_000_000.0;
+        return new Result(latencies.length * 1_000_000_000.0 / elapsed, p99, failed.get());
+    }
+
+    private User seed(ConfigurableApplicationContext context) {
+        User owner = context.getBean(UserRepository.class).save(TestEntities.user("virtual@bank.com"));
+
+        CardRepository cardRepository = context.getBean(CardRepository.class);
+        for (int i = 0; i < 5; i++) {
+            cardRepository.save(TestEntities.card(String.format("95000000000000%02d", i), owner, Money.of("100.00")));
+        }
+        return owner;
+    }
+
+    private record Result(double throughput, double p99, int failed) {
+    }
+}
@@ -0,0 +1,118 @@
+package com.example.bankcards.security;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class JwtAuthenticationFilterTest {
+
+    private static final String SECRET = "test-secret-key-that-is-long-enough-for-hmac-sha-256";
+
+    @Mock
+    private UserDetailsService userDetailsService;
+
+    private JwtTokenProvider jwtTokenProvider;
+    private TokenDenyList tokenDenyList;
+    private SimpleMeterRegistry meterRegistry;
+    private JwtAuthenticationFilter filter;
+
+    @BeforeEach
+    void setUp() {
+        SecurityContextHolder.clearContext();
+        jwtTokenProvider = new JwtTokenProvider(SECRET, 60_000, 100);
+        tokenDenyList = new TokenDenyList(60_000);
+        meterRegistry = new SimpleMeterRegistry();
+        filter = new JwtAuthenticationFilter(jwtTokenProvider, userDetailsService, tokenDenyList, meterRegistry);
+        ReflectionTestUtils.setField(filter, "principalSource", JwtAuthenticationFilter.PrincipalSource.TOKEN);
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void doFilter_TokenWithClaims_BuildsPrincipalWithoutDatabase() throws Exception {
+        String token = jwtTokenProvider.generateToken(7L, "admin@bank.com", "ADMIN");
+
+        filter.doFilter(requestWith(token), new MockHttpServletResponse(), new MockFilterChain());
+
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        assertNotNull(authentication);
+        AuthenticatedUser principal = (AuthenticatedUser) authentication.getPrincipal();
+        assertEquals(7L, principal.id());
+        assertEquals("admin@bank.com", principal.getUsername());
+        assertEquals("ROLE_ADMIN", authentication.getAuthorities().iterator().next().getAuthority());
+        verify(userDetailsService, never()).loadUserByUsername(any());
+    }
+
+    @Test
+    void doFilter_RevokedToken_LeavesRequestUnauthenticated() throws Exception {
+        // Выпущен в ту же миллисекунду, что и отзыв, но с прежней версией
+        String token = jwtTokenProvider.generateToken(7L, "admin@bank.com", "ADMIN");
+        tokenDenyList.revokeAll(7L, 1);
+
+        filter.doFilter(requestWith(token), new MockHttpServletResponse(), new MockFilterChain());
+
+        assertNull(SecurityContextHolder.getContext().getAuthentication());
+        verify(userDetailsService, never()).loadUserByUsername(any());
+    }
+
+    @Test
+    void doFilter_RecordsValidationAndPrincipalLoadTimers() throws Exception {
+        String token = jwtTokenProvider.generateToken(7L, "admin@bank.com", "ADMIN");
+
+        filter.doFilter(requestWith(token), new MockHttpServletResponse(), new MockFilterChain());
+        filter.doFilter(requestWith("not-a-jwt"), new MockHttpServletResponse(), new MockFilterChain());
+
+        assertEquals(1, meterRegistry.timer("security.jwt.validation", "outcome", "valid").count());
+        assertEquals(1, meterRegistry.timer("security.jwt.validation", "outcome", "invalid").count());
+        assertEquals(1, meterRegistry.timer("security.principal.load", "source", "token").count());
+    }
+
+    @Test
+    void doFilter_TokenWithCurrentVersion_StaysValid() throws Exception {
+        tokenDenyList.revokeAll(7L, 1);
+        String token = jwtTokenProvider.generateToken(7L, "admin@bank.com", "ADMIN", 1);
+
+        filter.doFilter(requestWith(token), new MockHttpServletResponse(), new MockFilterChain());
+
+        assertNotNull(SecurityContextHolder.getContext().getAuthentication());
+    }
+
+    @Test
+    void doFilter_DatabasePrincipalWithNewerVersion_LeavesRequestUnauthenticated() throws Exception {
+        ReflectionTestUtils.setField(filter, "principalSource", JwtAuthenticationFilter.PrincipalSource.DATABASE);
+        when(userDetailsService.loadUserByUsername("admin@bank.com"))
+                .thenReturn(new AuthenticatedUser(7L, "admin@bank.com", "hash", "ADMIN", 1));
+        String token = jwtTokenProvider.generateToken(7L, "admin@bank.com", "ADMIN");
+
+        filter.doFilter(requestWith(token), new MockHttpServletResponse(), new MockFilterChain());
+
+        assertNull(SecurityContextHolder.getContext().getAuthentication());
+    }
+
+    private MockHttpServletRequest requestWith(String token) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/cards/1");
+        request.addHeader("Authorization", "Bearer " + token);
+        return request;
+    }
+}
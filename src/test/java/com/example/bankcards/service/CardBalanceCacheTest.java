@@ -0,0 +1,119 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.CardBalanceSnapshot;
+import com.example.bankcards.dto.StatusChangeRequest;
+import com.example.bankcards.dto.TransactionRequestDto;
+import com.example.bankcards.entity.Money;
+import com.example.bankcards.entity.User;
+import com.example.bankcards.entity.enums.CardStatus;
+import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.repository.TransactionRepository;
+import com.example.bankcards.repository.UserRepository;
+import com.example.bankcards.support.TestEntities;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class CardBalanceCacheTest {
+
+    private static final String CARD_A = "3000000000000001";
+    private static final String CARD_B = "3000000000000002";
+
+    @Autowired
+    private CardServiceImpl cardService;
+
+    @Autowired
+    private TransactionServiceImpl transactionService;
+
+    @Autowired
+    private CardRepository cardRepository;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private CardBalanceCache cardBalanceCache;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private Long cardA;
+    private Long cardB;
+
+    @BeforeEach
+    void setUp() {
+        User owner = userRepository.save(TestEntities.user("balance@bank.com"));
+
+        cardA = cardRepository.save(TestEntities.card(CARD_A, owner, Money.of("100.00"))).getId();
+        cardB = cardRepository.save(TestEntities.card(CARD_B, owner, Money.of("100.00"))).getId();
+    }
+
+    @AfterEach
+    void tearDown() {
+        transactionRepository.deleteAll();
+        cardRepository.deleteAll();
+        userRepository.deleteAll();
+    }
+
+    @Test
+    void getCardBalance_RepeatedReads_ServedFromCache() {
+        double hitsBefore = cacheGets("hit");
+
+        CardBalanceSnapshot first = cardService.getCardBalance(cardA);
+        CardBalanceSnapshot second = cardService.getCardBalance(cardA);
+
+        assertEquals(first, second);
+        assertEquals(1, cacheGets("hit") - hitsBefore);
+    }
+
+    @Test
+    void createTransfer_EvictsBothCardsAndBumpsVersion() {
+        CardBalanceSnapshot before = cardService.getCardBalance(cardA);
+        cardService.getCardBalance(cardB);
+
+        transactionService.createTransfer(new TransactionRequestDto(CARD_A, CARD_B, Money.of("40.00")));
+
+        CardBalanceSnapshot after = cardService.getCardBalance(cardA);
+        assertEquals(0, Money.of("60.00").compareTo(after.balance()));
+        assertTrue(after.version() > before.version());
+        assertEquals(0, Money.of("140.00").compareTo(cardService.getCardBalance(cardB).balance()));
+    }
+
+    @Test
+    void changeCardStatus_EvictsCachedStatus() {
+        cardService.getCardBalance(cardA);
+
+        cardService.changeCardStatus(cardA, new StatusChangeRequest("BLOCKED"));
+
+        assertThrows(IllegalStateException.class, () -> cardService.getCardBalance(cardA));
+    }
+
+    @Test
+    void get_EvictedWhileLoading_DoesNotCacheLoadedValue() {
+        CardBalanceSnapshot stale = new CardBalanceSnapshot(cardA, Money.of("1.00"), CardStatus.ACTIVE, 0L);
+
+        CardBalanceSnapshot loaded = cardBalanceCache.get(cardA, () -> {
+            cardBalanceCache.evict(cardA);
+            return stale;
+        });
+
+        assertSame(stale, loaded);
+        assertEquals(0, Money.of("100.00").compareTo(cardService.getCardBalance(cardA).balance()));
+    }
+
+    private double cacheGets(String result) {
+        return meterRegistry.get("cache.gets").tag("cache", "cardBalances").tag("result", result)
+                .functionCounter().count();
+    }
+}
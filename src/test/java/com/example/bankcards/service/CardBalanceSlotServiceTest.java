@@ -0,0 +1,221 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.BatchTransferMode;
+import com.example.bankcards.dto.BatchTransferResponseDto;
+import com.example.bankcards.dto.TransactionRequestDto;
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.entity.CardBalanceSlot;
+import com.example.bankcards.entity.Money;
+import com.example.bankcards.entity.User;
+import com.example.bankcards.exception.InsufficientFundsException;
+import com.example.bankcards.repository.CardBalanceSlotRepository;
+import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.repository.TransactionRepository;
+import com.example.bankcards.repository.UserRepository;
+import com.example.bankcards.security.JwtTokenProvider;
+import com.example.bankcards.support.TestEntities;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class CardBalanceSlotServiceTest {
+
+    private static final String HOT_CARD = "8200000000000000";
+
+    @Autowired
+    private CardBalanceSlotServiceImpl balanceSlotService;
+
+    @Autowired
+    private CardServiceImpl cardService;
+
+    @Autowired
+    private TransactionServiceImpl transactionService;
+
+    @Autowired
+    private CardBalanceSlotRepository slotRepository;
+
+    @Autowired
+    private CardRepository cardRepository;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private JwtTokenProvider jwtTokenProvider;
+
+    private final List<String> counterparties = new ArrayList<>();
+    private Long hotCardId;
+    private String token;
+
+    @BeforeEach
+    void setUp() {
+        User owner = userRepository.save(TestEntities.user("slots@bank.com"));
+        token = jwtTokenProvider.generateToken(owner.getId(), owner.getUsername(), "USER");
+
+        hotCardId = cardRepository.save(TestEntities.card(HOT_CARD, owner, Money.of("1000.00"))).getId();
+        for (int i = 1; i <= 4; i++) {
+            String number = "820000000000000" + i;
+            cardRepository.save(TestEntities.card(number, owner, Money.of("1000.00")));
+            counterparties.add(number);
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        transactionRepository.deleteAll();
+        slotRepository.deleteAll();
+        cardRepository.deleteAll();
+        userRepository.deleteAll();
+    }
+
+    @Test
+    void configureSlots_SplitsBalanceAndKeepsTotal() {
+        balanceSlotService.configureSlots(hotCardId, 3);
+
+        List<CardBalanceSlot> slots = slotRepository.findAll();
+        assertEquals(3, slots.size());
+        assertEquals(0, Money.ZERO.compareTo(cardRepository.findById(hotCardId).orElseThrow().getBalance()));
+        assertBalance("1000.00");
+
+        balanceSlotService.configureSlots(hotCardId, 0);
+
+        assertTrue(slotRepository.findAll().isEmpty());
+        assertEquals(0, Money.of("1000.00").compareTo(cardRepository.findById(hotCardId).orElseThrow().getBalance()));
+    }
+
+    @Test
+    void createTransfer_DebitLargerThanAnySlot_CollectsFromAllSlots() {
+        balanceSlotService.configureSlots(hotCardId, 4);
+
+        transactionService.createTransfer(new TransactionRequestDto(HOT_CARD, counterparties.get(0), Money.of("900.00")));
+
+        assertBalance("100.00");
+        assertThrows(InsufficientFundsException.class, () -> transactionService.createTransfer(
+                new TransactionRequestDto(HOT_CARD, counterparties.get(0), Money.of("100.01"))));
+        assertBalance("100.00");
+    }
+
+    @Test
+    void createTransfers_BatchPayoutFromSlottedCard_DebitsSlots() {
+        balanceSlotService.configureSlots(hotCardId, 4);
+
+        BatchTransferResponseDto payout = transactionService.createTransfers(List.of(
+                new TransactionRequestDto(HOT_CARD, counterparties.get(0), Money.of("600.00")),
+                new TransactionRequestDto(HOT_CARD, counterparties.get(1), Money.of("300.00")),
+                new TransactionRequestDto(counterparties.get(2), HOT_CARD, Money.of("50.00"))), BatchTransferMode.ATOMIC);
+
+        assertEquals(3, payout.succeeded());
+        assertBalance("150.00");
+        assertEquals(0, Money.ZERO.compareTo(cardRepository.findById(hotCardId).orElseThrow().getBalance()));
+        assertTrue(slotRepository.findAll().stream().allMatch(slot -> slot.getBalance().signum() >= 0));
+
+        BatchTransferResponseDto tooLarge = transactionService.createTransfers(List.of(
+                new TransactionRequestDto(HOT_CARD, counterparties.get(0), Money.of("150.01"))), BatchTransferMode.BEST_EFFORT);
+
+        assertEquals(1, tooLarge.failed());
+        assertBalance("150.00");
+    }
+
+    @Test
+    void rebalanceAll_EvensSlotsAndSweepsCardRow() {
+        balanceSlotService.configureSlots(hotCardId, 4);
+        transactionService.createTransfer(new TransactionRequestDto(HOT_CARD, counterparties.get(0), Money.of("250.00")));
+        Card card = cardRepository.findById(hotCardId).orElseThrow();
+        card.setBalance(Money.of("50.00")); // как после зачисления в обход слотов
+        cardRepository.save(card);
+
+        balanceSlotService.rebalanceAll();
+
+        assertEquals(0, Money.ZERO.compareTo(cardRepository.findById(hotCardId).orElseThrow().getBalance()));
+        assertTrue(slotRepository.findAll().stream().allMatch(slot -> slot.getBalance().compareTo(Money.of("200.00")) == 0));
+        assertBalance("800.00");
+    }
+
+    @Test
+    void createTransfer_ParallelTransfersThroughHotCard_PreserveTotalBalance() throws Exception {
+        balanceSlotService.configureSlots(hotCardId, 4);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<?>> futures = new ArrayList<>();
+
+        for (int t = 0; t < 8; t++) {
+            futures.add(executor.submit(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                for (int i = 0; i < 50; i++) {
+                    String other = counterparties.get(random.nextInt(counterparties.size()));
+                    Money amount = Money.ofMinor(random.nextInt(1, 50000));
+                    TransactionRequestDto request = random.nextBoolean()
+                            ? new TransactionRequestDto(HOT_CARD, other, amount)
+                            : new TransactionRequestDto(other, HOT_CARD, amount);
+                    try {
+                        transactionService.createTransfer(request);
+                    } catch (InsufficientFundsException ignored) {
+                        // допустимый исход
+                    }
+                }
+            }));
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(2, TimeUnit.MINUTES), "Переводы не завершились вовремя");
+        for (Future<?> future : futures) {
+            future.get();
+        }
+
+        Money total = cardRepository.findAll().stream().map(Card::getBalance).reduce(Money.ZERO, Money::plus)
+                .plus(slotRepository.findAll().stream().map(CardBalanceSlot::getBalance).reduce(Money.ZERO, Money::plus));
+        assertEquals(0, Money.of("5000.00").compareTo(total));
+        assertTrue(slotRepository.findAll().stream().allMatch(slot -> slot.getBalance().signum() >= 0));
+    }
+
+    @Test
+    void configureSlots_OldETagNeverMatchesLaterBalance() throws Exception {
+        balanceSlotService.configureSlots(hotCardId, 4);
+        for (int i = 0; i < 3; i++) {
+            transactionService.createTransfer(new TransactionRequestDto(HOT_CARD, counterparties.get(0), Money.of("1.00")));
+        }
+        String oldETag = mockMvc.perform(get("/api/cards/" + hotCardId + "/balance")
+                        .header("Authorization", "Bearer " + token))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        // Пересоздание слотов сбрасывает их версии в 0; ни один последующий баланс не должен получить старый ETag
+        balanceSlotService.configureSlots(hotCardId, 4);
+        for (int i = 0; i < 6; i++) {
+            mockMvc.perform(get("/api/cards/" + hotCardId + "/balance")
+                            .header(HttpHeaders.IF_NONE_MATCH, oldETag)
+                            .header("Authorization", "Bearer " + token))
+                    .andExpect(status().isOk());
+            transactionService.createTransfer(new TransactionRequestDto(HOT_CARD, counterparties.get(0), Money.of("1.00")));
+        }
+    }
+
+    private void assertBalance(String expected) {
+        assertEquals(0, Money.of(expected).compareTo(cardService.getCardBalance(hotCardId).balance()));
+    }
+}
@@ -0,0 +1,109 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.StatusChangeRequest;
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.entity.Money;
+import com.example.bankcards.entity.User;
+import com.example.bankcards.entity.enums.CardStatus;
+import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.repository.UserRepository;
+import com.example.bankcards.support.TestEntities;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class CardConflictRetryTest {
+
+    @Autowired
+    private CardServiceImpl cardService;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private CardRepository cardRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private Long cardId;
+
+    @BeforeEach
+    void setUp() {
+        User owner = userRepository.save(TestEntities.user("conflict@bank.com"));
+
+        cardId = cardRepository.save(TestEntities.card("2000000000000001", owner, Money.of("1000.00"))).getId();
+    }
+
+    @AfterEach
+    void tearDown() {
+        cardRepository.deleteAll();
+        userRepository.deleteAll();
+    }
+
+    @Test
+    void changeCardStatus_ConcurrentBalanceUpdate_RetriesWithoutLosingIt() throws Exception {
+        CountDownLatch locked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        double retriesBefore = retries();
+
+        // Параллельная запись держит блокировку строки карты, пока смена статуса не прочитает старую версию
+        Future<?> writer = executor.submit(() -> transactionTemplate.executeWithoutResult(status -> {
+            Card card = cardRepository.findByIdForUpdate(cardId).orElseThrow();
+            card.setBalance(card.getBalance().plus(Money.of("1.00")));
+            cardRepository.flush();
+            locked.countDown();
+            await(release);
+        }));
+        assertTrue(locked.await(10, TimeUnit.SECONDS));
+
+        Future<?> statusChange = executor.submit(
+                () -> cardService.changeCardStatus(cardId, new StatusChangeRequest("BLOCKED")));
+        Thread.sleep(500);
+        release.countDown();
+
+        writer.get(1, TimeUnit.MINUTES);
+        statusChange.get(1, TimeUnit.MINUTES);
+        executor.shutdown();
+
+        Card card = cardRepository.findById(cardId).orElseThrow();
+        assertEquals(CardStatus.BLOCKED, card.getStatus());
+        assertEquals(0, Money.of("1001.00").compareTo(card.getBalance()));
+        assertTrue(retries() > retriesBefore);
+    }
+
+    private double retries() {
+        Counter counter = meterRegistry.find("service.conflicts")
+                .tag("operation", "CardServiceImpl.changeCardStatus").tag("outcome", "retried").counter();
+        return counter == null ? 0 : counter.count();
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            assertTrue(latch.await(10, TimeUnit.SECONDS));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.entity.CardExpiryCheckpoint;
+import com.example.bankcards.entity.Money;
+import com.example.bankcards.entity.User;
+import com.example.bankcards.entity.enums.CardStatus;
+import com.example.bankcards.repository.CardExpiryCheckpointRepository;
+import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.repository.UserRepository;
+import com.example.bankcards.support.TestEntities;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:card-expiry;DB_CLOSE_DELAY=-1",
+        "app.cards.expiry.chunk-size=4"
+})
+@ActiveProfiles("test")
+class CardExpiryJobTest {
+
+    private static final int EXPIRED_CARDS = 10;
+    private static final int VALID_CARDS = 5;
+
+    @Autowired
+    private CardServiceImpl cardService;
+
+    @Autowired
+    private CardRepository cardRepository;
+
+    @Autowired
+    private CardExpiryCheckpointRepository checkpointRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private final List<Long> expiredIds = new ArrayList<>();
+    private Long blockedId;
+
+    @BeforeEach
+    void setUp() {
+        User owner = userRepository.save(TestEntities.user("expiry@bank.com"));
+
+        LocalDate today = LocalDate.now();
+        for (int i = 0; i < EXPIRED_CARDS; i++) {
+            expiredIds.add(saveCard(String.format("90000000000000%02d", i), owner, today.minusDays(1 + i), CardStatus.ACTIVE));
+        }
+        for (int i = 0; i < VALID_CARDS; i++) {
+            saveCard(String.format("91000000000000%02d", i), owner, today.plusDays(i), CardStatus.ACTIVE);
+        }
+        blockedId = saveCard("9200000000000000", owner, today.minusDays(1), CardStatus.BLOCKED);
+    }
+
+    @AfterEach
+    void tearDown() {
+        checkpointRepository.deleteAll();
+        cardRepository.deleteAll();
+        userRepository.deleteAll();
+    }
+
+    @Test
+    void updateExpiredCardStatuses_ExpiresOnlyOverdueActiveCardsInChunks() {
+        double chunksBefore = meterRegistry.counter("cards.expiry.chunks").count();
+
+        cardService.updateExpiredCardStatuses();
+
+        for (Card card : cardRepository.findAll()) {
+            boolean overdue = expiredIds.contains(card.getId());
+            if (card.getId().equals(blockedId)) {
+                assertEquals(CardStatus.BLOCKED, card.getStatus());
+            } else {
+                assertEquals(overdue ? CardStatus.EXPIRED : CardStatus.ACTIVE, card.getStatus());
+                assertEquals(overdue ? 0 : 1, card.getBalance().signum());
+            }
+        }
+
+        CardExpiryCheckpoint checkpoint = checkpointRepository.findById(LocalDate.now()).orElseThrow();
+        assertTrue(checkpoint.isCompleted());
+        assertEquals(EXPIRED_CARDS, checkpoint.getExpiredCount());
+        assertEquals(3, meterRegistry.counter("cards.expiry.chunks").count() - chunksBefore);
+    }
+
+    @Test
+    void updateExpiredCardStatuses_ResumesFromCheckpoint() {
+        Long lastProcessed = expiredIds.get(5);
+        checkpointRepository.save(new CardExpiryCheckpoint(LocalDate.now(), lastProcessed, 6L, false));
+
+        cardService.updateExpiredCardStatuses();
+
+        for (Long id : expiredIds) {
+            CardStatus expected = id <= lastProcessed ? CardStatus.ACTIVE : CardStatus.EXPIRED;
+            assertEquals(expected, cardRepository.findById(id).orElseThrow().getStatus());
+        }
+        assertEquals(EXPIRED_CARDS, checkpointRepository.findById(LocalDate.now()).orElseThrow().getExpiredCount());
+    }
+
+    @Test
+    void updateExpiredCardStatuses_CompletedRun_IsNotRepeated() {
+        checkpointRepository.save(new CardExpiryCheckpoint(LocalDate.now(), 0L, 0L, true));
+
+        cardService.updateExpiredCardStatuses();
+
+        assertTrue(cardRepository.findAll().stream().noneMatch(card -> card.getStatus() == CardStatus.EXPIRED));
+    }
+
+    private Long saveCard(String number, User owner, LocalDate expirationDate, CardStatus status) {
+        Card card = TestEntities.card(number, owner, Money.of("100.00"), status);
+        card.setExpirationDate(expirationDate);
+        return cardRepository.save(card).getId();
+    }
+}
@@ -0,0 +1,104 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.CardSearchRequest;
+import com.example.bankcards.dto.CardSearchResponse;
+import com.example.bankcards.entity.Money;
+import com.example.bankcards.entity.User;
+import com.example.bankcards.entity.enums.CardStatus;
+import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.repository.UserRepository;
+import com.example.bankcards.support.TestEntities;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import org.springframework.test.context.ActiveProfiles;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class CardServiceSearchTest {
+
+    @Autowired
+    private CardServiceImpl cardService;
+
+    @Autowired
+    private CardRepository cardRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    private Long ownerId;
+
+    @BeforeEach
+    void setUp() {
+        User owner = userRepository.save(TestEntities.user("search@bank.com"));
+        ownerId = owner.getId();
+
+        cardRepository.save(TestEntities.card("4111222233334444", owner, Money.of("10.00")));
+        cardRepository.save(TestEntities.card("4111222255556666", owner, Money.of("10.00")));
+        cardRepository.save(TestEntities.card("5500000000004444", owner, Money.of("10.00")));
+    }
+
+    @AfterEach
+    void tearDown() {
+        cardRepository.deleteAll();
+        userRepository.deleteAll();
+    }
+
+    @Test
+    void searchCards_MatchesFragmentAnywhereInNumber() {
+        Page<CardSearchResponse> page = cardService.searchCards("4444", PageRequest.of(0, 10));
+
+        assertEquals(2, page.getTotalElements());
+        assertTrue(page.getContent().stream().allMatch(card -> card.maskedCardNumber().equals("****4444")));
+        assertEquals(2, cardService.searchCards("4111 2222", PageRequest.of(0, 10)).getTotalElements());
+    }
+
+    @Test
+    void searchCards_ShortOrNonNumericFragment_ThrowsException() {
+        assertThrows(IllegalArgumentException.class, () -> cardService.searchCards("44", PageRequest.of(0, 10)));
+        assertThrows(IllegalArgumentException.class, () -> cardService.searchCards("4%4", PageRequest.of(0, 10)));
+    }
+
+    @Test
+    void getUserCards_ReturnsMaskedProjectionWithTotal() {
+        Page<CardSearchResponse> page = cardService.getUserCards(
+                ownerId, new CardSearchRequest("4444", CardStatus.ACTIVE), PageRequest.of(0, 10, Sort.by("id")));
+
+        assertEquals(2, page.getTotalElements());
+        CardSearchResponse first = page.getContent().get(0);
+        assertEquals("****4444", first.maskedCardNumber());
+        assertEquals("ACTIVE", first.status());
+        assertEquals(0, Money.of("10.00").compareTo(first.balance()));
+        assertNotNull(first.expirationDate());
+    }
+
+    @Test
+    void getUserCardsSlice_ReportsNextPageWithoutCount() {
+        CardSearchRequest all = new CardSearchRequest(null, null);
+
+        Slice<CardSearchResponse> first = cardService.getUserCardsSlice(ownerId, all, PageRequest.of(0, 2, Sort.by("id")));
+        Slice<CardSearchResponse> second = cardService.getUserCardsSlice(ownerId, all, PageRequest.of(1, 2, Sort.by("id")));
+
+        assertEquals(2, first.getNumberOfElements());
+        assertTrue(first.hasNext());
+        assertEquals(1, second.getNumberOfElements());
+        assertFalse(second.hasNext());
+        assertEquals("****6666", first.getContent().get(1).maskedCardNumber());
+    }
+
+    @Test
+    void getUserCards_WildcardInSearchTerm_ThrowsException() {
+        CardSearchRequest request = new CardSearchRequest("%", null);
+
+        assertThrows(IllegalArgumentException.class,
+                () -> cardService.getUserCards(ownerId, request, PageRequest.of(0, 10)));
+    }
+}
@@ -0,0 +1,145 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.TransactionRequestDto;
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.entity.CardBalanceSlot;
+import com.example.bankcards.entity.Money;
+import com.example.bankcards.entity.User;
+import com.example.bankcards.exception.InsufficientFundsException;
+import com.example.bankcards.repository.CardBalanceSlotRepository;
+import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.repository.TransactionRepository;
+import com.example.bankcards.repository.UserRepository;
+import com.example.bankcards.support.TestEntities;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Пропускная способность переводов через одну горячую карту в зависимости от числа слотов баланса:
+ * THREADS потоков в течение MEASURE_MS переводят между горячей картой и случайными картами-контрагентами.
+ * Запуск: mvn test -Pload-tests
+ */
+@Tag("load")
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:hot-card;DB_CLOSE_DELAY=-1",
+        "logging.level.com.example.bankcards=WARN"
+})
+@ActiveProfiles("test")
+class HotCardThroughputLoadTest {
+
+    private static final String HOT_CARD = "8300000000000000";
+    private static final int COUNTERPARTIES = 32;
+    private static final int THREADS = 16;
+    private static final long MEASURE_MS = 5_000;
+    private static final int[] SLOT_COUNTS = {0, 1, 4, 16};
+
+    @Autowired
+    private CardBalanceSlotServiceImpl balanceSlotService;
+
+    @Autowired
+    private TransactionServiceImpl transactionService;
+
+    @Autowired
+    private CardBalanceSlotRepository slotRepository;
+
+    @Autowired
+    private CardRepository cardRepository;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    private final List<String> counterparties = new ArrayList<>();
+    private Long hotCardId;
+
+    @BeforeEach
+    void setUp() {
+        User owner = userRepository.save(TestEntities.user("hot@bank.com"));
+
+        hotCardId = cardRepository.save(TestEntities.card(HOT_CARD, owner, Money.of("1000000.00"))).getId();
+        for (int i = 1; i <= COUNTERPARTIES; i++) {
+            String number = String.format("83000000000001%02d", i);
+            cardRepository.save(TestEntities.card(number, owner, Money.of("1000000.00")));
+            counterparties.add(number);
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        transactionRepository.deleteAll();
+        slotRepository.deleteAll();
+        cardRepository.deleteAll();
+        userRepository.deleteAll();
+    }
+
+    @Test
+    void createTransfer_HotCard_ThroughputBySlotCount() throws Exception {
+        measure(4); // прогрев
+
+        StringBuilder report = new StringBuilder("hot card transfers/s by slot count:");
+        for (int slots : SLOT_COUNTS) {
+            double throughput = measure(slots);
+            report.append(String.format(" %d slots %.0f;", slots, throughput));
+        }
+        System.out.println(report);
+
+        Money total = cardRepository.findAll().stream().map(Card::getBalance).reduce(Money.ZERO, Money::plus)
+                .plus(slotRepository.findAll().stream().map(CardBalanceSlot::getBalance).reduce(Money.ZERO, Money::plus));
+        assertEquals(0, Money.ofMinor(100_000_000L * (COUNTERPARTIES + 1)).compareTo(total));
+    }
+
+    private double measure(int slots) throws Exception {
+        balanceSlotService.configureSlots(hotCardId, slots);
+
+        AtomicBoolean running = new AtomicBoolean(true);
+        AtomicInteger completed = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            futures.add(executor.submit(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                while (running.get()) {
+                    String other = counterparties.get(random.nextInt(COUNTERPARTIES));
+                    Money amount = Money.ofMinor(random.nextInt(1, 10000));
+                    try {
+                        transactionService.createTransfer(random.nextBoolean()
+                                ? new TransactionRequestDto(HOT_CARD, other, amount)
+                                : new TransactionRequestDto(other, HOT_CARD, amount));
+                        completed.incrementAndGet();
+                    } catch (InsufficientFundsException ignored) {
+                        // при таких суммах и остатках не ожидается
+                    }
+                }
+            }));
+        }
+
+        long started = System.nanoTime();
+        Thread.sleep(MEASURE_MS);
+        running.set(false);
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(1, TimeUnit.MINUTES));
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        return completed.get() / ((System.nanoTime() - started) / 1e9);
+    }
+}
@@ -0,0 +1,194 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.config.CacheConfig;
+import com.example.bankcards.dto.TransactionRequestDto;
+import com.example.bankcards.dto.TransactionResponseDto;
+import com.example.bankcards.entity.IdempotencyKey;
+import com.example.bankcards.entity.Money;
+import com.example.bankcards.entity.User;
+import com.example.bankcards.exception.IdempotencyKeyConflictException;
+import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.repository.IdempotencyKeyRepository;
+import com.example.bankcards.repository.TransactionRepository;
+import com.example.bankcards.repository.UserRepository;
+import com.example.bankcards.support.TestEntities;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.CacheManager;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class IdempotencyServiceTest {
+
+    private static final String USERNAME = "idempotency@bank.com";
+    private static final String CARD_A = "8100000000000001";
+    private static final String CARD_B = "8100000000000002";
+    private static final TransactionRequestDto TRANSFER = new TransactionRequestDto(CARD_A, CARD_B, Money.of("25.00"));
+
+    @Autowired
+    private IdempotencyServiceImpl idempotencyService;
+
+    @Autowired
+    private TransactionServiceImpl transactionService;
+
+    @Autowired
+    private IdempotencyKeyRepository idempotencyKeyRepository;
+
+    @Autowired
+    private CardRepository cardRepository;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @BeforeEach
+    void setUp() {
+        User owner = userRepository.save(TestEntities.user(USERNAME));
+
+        cardRepository.save(TestEntities.card(CARD_A, owner, Money.of("1000.00")));
+        cardRepository.save(TestEntities.card(CARD_B, owner, Money.of("1000.00")));
+    }
+
+    @AfterEach
+    void tearDown() {
+        cacheManager.getCache(CacheConfig.IDEMPOTENT_RESPONSES).clear();
+        idempotencyKeyRepository.deleteAll();
+        transactionRepository.deleteAll();
+        cardRepository.deleteAll();
+        userRepository.deleteAll();
+    }
+
+    @Test
+    void createTransfer_ReplayedKey_ReturnsSameTransactionAndMovesMoneyOnce() {
+        TransactionResponseDto first = idempotencyService.createTransfer(USERNAME, "key-1", TRANSFER);
+        TransactionResponseDto replay = idempotencyService.createTransfer(USERNAME, "key-1",
+                new TransactionRequestDto(CARD_A, CARD_B, Money.of("25")));
+
+        // Без локального кеша результат восстанавливается из таблицы ключей
+        cacheManager.getCache(CacheConfig.IDEMPOTENT_RESPONSES).clear();
+        TransactionResponseDto fromTable = idempotencyService.createTransfer(USERNAME, "key-1", TRANSFER);
+
+        assertEquals(first.id(), replay.id());
+        assertEquals(first.id(), fromTable.id());
+        assertEquals(first.maskedFromCardNumber(), fromTable.maskedFromCardNumber());
+        assertNotNull(fromTable.timestamp());
+        assertEquals(1, transactionRepository.count());
+        assertBalance(CARD_A, "975.00");
+        assertBalance(CARD_B, "1025.00");
+    }
+
+    @Test
+    void createTransfer_SameKeyDifferentPayload_ThrowsConflict() {
+        idempotencyService.createTransfer(USERNAME, "key-2", TRANSFER);
+
+        assertThrows(IdempotencyKeyConflictException.class, () -> idempotencyService.createTransfer(
+                USERNAME, "key-2", new TransactionRequestDto(CARD_A, CARD_B, Money.of("26.00"))));
+        assertEquals(1, transactionRepository.count());
+    }
+
+    @Test
+    void createTransfer_ConcurrentDuplicates_ExecuteOnce() throws Exception {
+        int threads = 8;
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<TransactionResponseDto>> futures = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                return idempotencyService.createTransfer(USERNAME, "key-3", TRANSFER);
+            }));
+        }
+
+        start.countDown();
+        Set<Integer> ids = new HashSet<>();
+        for (Future<TransactionResponseDto> future : futures) {
+            ids.add(future.get(30, TimeUnit.SECONDS).id());
+        }
+        executor.shutdown();
+
+        assertEquals(1, ids.size());
+        assertEquals(1, transactionRepository.count());
+        assertBalance(CARD_A, "975.00");
+    }
+
+    @Test
+    void createTransfer_FailedTransfer_ReleasesKey() {
+        TransactionRequestDto tooLarge = new TransactionRequestDto(CARD_A, CARD_B, Money.of("5000.00"));
+        assertThrows(RuntimeException.class, () -> idempotencyService.createTransfer(USERNAME, "key-4", tooLarge));
+
+        assertTrue(idempotencyKeyRepository.findById(USERNAME + ":key-4").isEmpty());
+    }
+
+    @Test
+    void createTransfer_AbandonedReservation_IsTakenOverAfterLease() {
+        idempotencyService.createTransfer(USERNAME, "key-5a", TRANSFER);
+        String requestHash = idempotencyKeyRepository.findById(USERNAME + ":key-5a").orElseThrow().getRequestHash();
+        // Резерв узла, упавшего сразу после вставки ключа: аренда уже истекла
+        transactionTemplate.executeWithoutResult(status -> idempotencyKeyRepository.reserve(
+                USERNAME + ":key-5", requestHash, "crashed-node", LocalDateTime.now().minusSeconds(1)));
+
+        TransactionResponseDto response = idempotencyService.createTransfer(USERNAME, "key-5", TRANSFER);
+
+        IdempotencyKey stored = idempotencyKeyRepository.findById(USERNAME + ":key-5").orElseThrow();
+        assertTrue(stored.isCompleted());
+        assertEquals(response.id(), stored.getTransactionId());
+        assertTrue(stored.getExpiresAt().isAfter(LocalDateTime.now().plusHours(1)));
+        assertEquals(2, transactionRepository.count());
+    }
+
+    @Test
+    void createTransfer_ReservationTakenOver_RollsBackTransfer() {
+        transactionTemplate.executeWithoutResult(status -> idempotencyKeyRepository.reserve(
+                USERNAME + ":key-6", "hash", "other-node", LocalDateTime.now().plusMinutes(1)));
+
+        assertThrows(IdempotencyKeyConflictException.class,
+                () -> transactionService.createTransfer(TRANSFER, USERNAME + ":key-6", "lost-lease"));
+
+        assertEquals(0, transactionRepository.count());
+        assertBalance(CARD_A, "1000.00");
+        assertFalse(idempotencyKeyRepository.findById(USERNAME + ":key-6").orElseThrow().isCompleted());
+    }
+
+    @Test
+    void purgeExpiredKeys_DeletesOnlyExpiredKeys() {
+        transactionTemplate.executeWithoutResult(status -> {
+            idempotencyKeyRepository.reserve("stale", "hash", "reservation", LocalDateTime.now().minusMinutes(1));
+            idempotencyKeyRepository.reserve("fresh", "hash", "reservation", LocalDateTime.now().plusHours(1));
+        });
+
+        idempotencyService.purgeExpiredKeys();
+
+        assertEquals(List.of("fresh"), idempotencyKeyRepository.findAll().stream().map(IdempotencyKey::getKey).toList());
+    }
+
+    private void assertBalance(String cardNumber, String expected) {
+        Money balance = cardRepository.findByCardNumber(cardNumber).orElseThrow().getBalance();
+        assertEquals(0, Money.of(expected).compareTo(balance));
+    }
+}
@@ -0,0 +1,146 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.TransactionRequestDto;
+import com.example.bankcards.entity.Money;
+import com.example.bankcards.entity.User;
+import com.example.bankcards.exception.HashingUnavailableException;
+import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.repository.TransactionRepository;
+import com.example.bankcards.repository.UserRepository;
+import com.example.bankcards.support.TestEntities;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * p99 перевода без нагрузки, во время лавины логинов через ограниченный пул хеширования
+ * и во время такой же лавины, когда BCrypt считается прямо в вызывающих потоках.
+ * Запуск: mvn test -Pload-tests
+ */
+@Tag("load")
+@SpringBootTest(properties = "logging.level.com.example.bankcards=WARN")
+@ActiveProfiles("test")
+class LoginFloodLoadTest {
+
+    private static final String CARD_A = "8000000000000001";
+    private static final String CARD_B = "8000000000000002";
+    private static final String USERNAME = "flood@bank.com";
+    private static final String PASSWORD = "password";
+    private static final int FLOOD_THREADS = 32;
+    private static final int TRANSFERS = 400;
+
+    @Autowired
+    private TransactionServiceImpl transactionService;
+
+    @Autowired
+    private AuthenticationManager authenticationManager;
+
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+
+    @Autowired
+    private CardRepository cardRepository;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    private String passwordHash;
+
+    @BeforeEach
+    void setUp() {
+        passwordHash = passwordEncoder.encode(PASSWORD);
+
+        User owner = TestEntities.user(USERNAME);
+        owner.setPassword(passwordHash);
+        owner = userRepository.save(owner);
+
+        cardRepository.save(TestEntities.card(CARD_A, owner, Money.of("10000.00")));
+        cardRepository.save(TestEntities.card(CARD_B, owner, Money.of("10000.00")));
+    }
+
+    @AfterEach
+    void tearDown() {
+        transactionRepository.deleteAll();
+        cardRepository.deleteAll();
+        userRepository.deleteAll();
+    }
+
+    @Test
+    void createTransfer_LoginFlood_P99StaysBounded() throws Exception {
+        measureTransferP99(); // прогрев
+        double idle = measureTransferP99();
+
+        AtomicInteger rejected = new AtomicInteger();
+        double bounded = underFlood(() -> {
+            try {
+                authenticationManager.authenticate(new UsernamePasswordAuthenticationToken(USERNAME, PASSWORD));
+            } catch (HashingUnavailableException e) {
+                rejected.incrementAndGet();
+            }
+        });
+
+        BCryptPasswordEncoder unbounded = new BCryptPasswordEncoder();
+        double inline = underFlood(() -> unbounded.matches(PASSWORD, passwordHash));
+
+        System.out.printf("transfer p99: idle %.2f ms, bounded hashing flood %.2f ms (%d logins rejected), "
+                + "inline hashing flood %.2f ms%n", idle, bounded, rejected.get(), inline);
+
+        assertTrue(bounded < inline,
+                "p99 при ограниченном пуле (" + bounded + " мс) должен быть ниже, чем без него (" + inline + " мс)");
+    }
+
+    private double underFlood(Runnable login) throws Exception {
+        AtomicBoolean running = new AtomicBoolean(true);
+        ExecutorService flood = Executors.newFixedThreadPool(FLOOD_THREADS);
+        for (int i = 0; i < FLOOD_THREADS; i++) {
+            flood.submit(() -> {
+                while (running.get()) {
+                    login.run();
+                }
+            });
+        }
+
+        try {
+            Thread.sleep(500);
+            return measureTransferP99();
+        } finally {
+            running.set(false);
+            flood.shutdown();
+            assertTrue(flood.awaitTermination(1, TimeUnit.MINUTES));
+        }
+    }
+
+    private double measureTransferP99() {
+        long[] latencies = new long[TRANSFERS];
+        for (int i = 0; i < TRANSFERS; i++) {
+            TransactionRequestDto request = i % 2 == 0
+                    ? new TransactionRequestDto(CARD_A, CARD_B, Money.of("1.00"))
+                    : new TransactionRequestDto(CARD_B, CARD_A, Money.of("1.00"));
+            long start = System.nanoTime();
+            transactionService.createTransfer(request);
+            latencies[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(latencies);
+        return latencies[(int) Math.ceil(TRANSFERS * 0.99) - 1] / 1_000_000.0;
+    }
+}
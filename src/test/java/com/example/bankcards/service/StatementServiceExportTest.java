@@ -0,0 +1,92 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.StatementFormat;
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.entity.Money;
+import com.example.bankcards.entity.User;
+import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.repository.UserRepository;
+import com.example.bankcards.support.TestEntities;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.io.OutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Выгрузка 1 млн строк. Запускается отдельным прогоном surefire с -Xmx256m (см. pom.xml):
+ * если выгрузка материализует результат в памяти, тест падает с OutOfMemoryError.
+ * База файловая, чтобы сами данные не занимали кучу.
+ */
+@Tag("heap-bounded")
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:file:./target/h2/statement-export",
+        "logging.level.com.example.bankcards=WARN"
+})
+@ActiveProfiles("test")
+class StatementServiceExportTest {
+
+    private static final int ROWS = 1_000_000;
+
+    @Autowired
+    private StatementServiceImpl statementService;
+
+    @Autowired
+    private CardRepository cardRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void exportStatement_MillionRows_StreamsWithBoundedHeap() throws Exception {
+        User owner = userRepository.save(TestEntities.user("export@bank.com"));
+
+        Card card = cardRepository.save(TestEntities.card("7000000000000001", owner, Money.ZERO));
+        Card counterparty = cardRepository.save(TestEntities.card("7000000000000002", owner, Money.ZERO));
+
+        jdbcTemplate.update("""
+                insert into transactions (id, from_card_id, to_card_id, amount, "timestamp")
+                select x, case when mod(x, 2) = 0 then ? else ? end, case when mod(x, 2) = 0 then ? else ? end,
+                       1.00, dateadd('SECOND', x, timestamp '2026-01-01 00:00:00')
+                from system_range(1, ?)
+                """, card.getId(), counterparty.getId(), counterparty.getId(), card.getId(), ROWS);
+
+        LineCountingOutputStream csv = new LineCountingOutputStream();
+        long exported = statementService.exportStatement(card.getId(), StatementFormat.CSV, csv);
+
+        assertEquals(ROWS, exported);
+        assertEquals(ROWS + 1, csv.lines);
+
+        LineCountingOutputStream ndjson = new LineCountingOutputStream();
+        assertEquals(ROWS, statementService.exportStatement(card.getId(), StatementFormat.NDJSON, ndjson));
+        assertEquals(ROWS, ndjson.lines);
+    }
+
+    private static class LineCountingOutputStream extends OutputStream {
+        private long lines;
+
+        @Override
+        public void write(int b) {
+            if (b == '\n') {
+                lines++;
+            }
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            for (int i = off; i < off + len; i++) {
+                if (b[i] == '\n') {
+                    lines++;
+                }
+            }
+        }
+    }
+}
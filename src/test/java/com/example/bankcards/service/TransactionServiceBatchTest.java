@@ -0,0 +1,147 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.BatchTransferItemResult;
+import com.example.bankcards.dto.BatchTransferMode;
+import com.example.bankcards.dto.BatchTransferResponseDto;
+import com.example.bankcards.dto.TransactionRequestDto;
+import com.example.bankcards.entity.Money;
+import com.example.bankcards.entity.User;
+import com.example.bankcards.entity.enums.CardStatus;
+import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.repository.TransactionRepository;
+import com.example.bankcards.repository.UserRepository;
+import com.example.bankcards.support.TestEntities;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class TransactionServiceBatchTest {
+
+    private static final String CARD_A = "5000000000000001";
+    private static final String CARD_B = "5000000000000002";
+    private static final String BLOCKED_CARD = "5000000000000003";
+    private static final String MISSING_CARD = "5000000000009999";
+
+    @Autowired
+    private TransactionServiceImpl transactionService;
+
+    @Autowired
+    private CardRepository cardRepository;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @BeforeEach
+    void setUp() {
+        User owner = userRepository.save(TestEntities.user("batch@bank.com"));
+
+        cardRepository.save(TestEntities.card(CARD_A, owner, Money.of("100.00"), CardStatus.ACTIVE));
+        cardRepository.save(TestEntities.card(CARD_B, owner, Money.of("100.00"), CardStatus.ACTIVE));
+        cardRepository.save(TestEntities.card(BLOCKED_CARD, owner, Money.of("100.00"), CardStatus.BLOCKED));
+    }
+
+    @AfterEach
+    void tearDown() {
+        transactionRepository.deleteAll();
+        cardRepository.deleteAll();
+        userRepository.deleteAll();
+    }
+
+    @Test
+    void createTransfers_BestEffort_AppliesValidItemsAndReportsFailures() {
+        List<TransactionRequestDto> requests = List.of(
+                new TransactionRequestDto(CARD_A, CARD_B, Money.of("30.00")),
+                new TransactionRequestDto(CARD_A, MISSING_CARD, Money.of("10.00")),
+                new TransactionRequestDto(CARD_B, CARD_A, Money.of("500.00")),
+                new TransactionRequestDto(CARD_B, CARD_A, Money.of("5.00")));
+
+        BatchTransferResponseDto response = transactionService.createTransfers(requests, BatchTransferMode.BEST_EFFORT);
+
+        assertEquals(2, response.succeeded());
+        assertEquals(2, response.failed());
+        assertEquals(BatchTransferItemResult.Status.SUCCESS, response.results().get(0).status());
+        assertNotNull(response.results().get(0).transactionId());
+        assertEquals(BatchTransferItemResult.Status.FAILED, response.results().get(1).status());
+        assertEquals(BatchTransferItemResult.Status.FAILED, response.results().get(2).status());
+        assertEquals(BatchTransferItemResult.Status.SUCCESS, response.results().get(3).status());
+
+        assertBalance(CARD_A, "75.00");
+        assertBalance(CARD_B, "125.00");
+        assertEquals(2, transactionRepository.count());
+    }
+
+    @Test
+    void createTransfers_BlockedCard_FailsItemsWithoutMovingMoney() {
+        List<TransactionRequestDto> requests = List.of(
+                new TransactionRequestDto(CARD_A, BLOCKED_CARD, Money.of("10.00")),
+                new TransactionRequestDto(BLOCKED_CARD, CARD_B, Money.of("10.00")),
+                new TransactionRequestDto(CARD_A, CARD_B, Money.of("5.00")));
+
+        BatchTransferResponseDto response = transactionService.createTransfers(requests, BatchTransferMode.BEST_EFFORT);
+
+        assertEquals(1, response.succeeded());
+        assertEquals(2, response.failed());
+        assertEquals(BatchTransferItemResult.Status.FAILED, response.results().get(0).status());
+        assertTrue(response.results().get(0).error().contains("Карта получателя неактивна"));
+        assertEquals(BatchTransferItemResult.Status.FAILED, response.results().get(1).status());
+        assertTrue(response.results().get(1).error().contains("Карта отправителя неактивна"));
+        assertEquals(BatchTransferItemResult.Status.SUCCESS, response.results().get(2).status());
+
+        assertBalance(CARD_A, "95.00");
+        assertBalance(CARD_B, "105.00");
+        assertBalance(BLOCKED_CARD, "100.00");
+    }
+
+    @Test
+    void createTransfers_Atomic_RollsBackWholeBatchOnFailure() {
+        List<TransactionRequestDto> requests = List.of(
+                new TransactionRequestDto(CARD_A, CARD_B, Money.of("30.00")),
+                new TransactionRequestDto(CARD_A, CARD_A, Money.of("10.00")));
+
+        BatchTransferResponseDto response = transactionService.createTransfers(requests, BatchTransferMode.ATOMIC);
+
+        assertEquals(0, response.succeeded());
+        assertEquals(1, response.failed());
+        assertEquals(BatchTransferItemResult.Status.ROLLED_BACK, response.results().get(0).status());
+        assertEquals(BatchTransferItemResult.Status.FAILED, response.results().get(1).status());
+
+        assertBalance(CARD_A, "100.00");
+        assertBalance(CARD_B, "100.00");
+        assertEquals(0, transactionRepository.count());
+    }
+
+    @Test
+    void createTransfers_LargeBatch_WritesEveryTransaction() {
+        List<TransactionRequestDto> requests = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            requests.add(i % 2 == 0
+                    ? new TransactionRequestDto(CARD_A, CARD_B, Money.of("1.00"))
+                    : new TransactionRequestDto(CARD_B, CARD_A, Money.of("1.00")));
+        }
+
+        BatchTransferResponseDto response = transactionService.createTransfers(requests, BatchTransferMode.ATOMIC);
+
+        assertEquals(1000, response.succeeded());
+        assertEquals(1000, transactionRepository.count());
+        assertBalance(CARD_A, "100.00");
+        assertBalance(CARD_B, "100.00");
+    }
+
+    private void assertBalance(String cardNumber, String expected) {
+        Money balance = cardRepository.findByCardNumber(cardNumber).orElseThrow().getBalance();
+        assertEquals(0, Money.of(expected).compareTo(balance));
+    }
+}
@@ -0,0 +1,142 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.TransactionRequestDto;
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.entity.Money;
+import com.example.bankcards.entity.User;
+import com.example.bankcards.exception.InsufficientFundsException;
+import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.repository.RoleRepository;
+import com.example.bankcards.repository.TransactionRepository;
+import com.example.bankcards.repository.UserRepository;
+import com.example.bankcards.support.TestEntities;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class TransactionServiceConcurrencyTest {
+
+    private static final int CARDS = 8;
+    private static final int THREADS = 16;
+    private static final int TRANSFERS_PER_THREAD = 250;
+    private static final Money INITIAL_BALANCE = Money.of("1000.00");
+
+    @Autowired
+    private TransactionServiceImpl transactionService;
+
+    @Autowired
+    private CardRepository cardRepository;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private RoleRepository roleRepository;
+
+    private final List<String> cardNumbers = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        User owner = userRepository.save(TestEntities.user("stress@bank.com"));
+
+        for (int i = 0; i < CARDS; i++) {
+            String number = String.format("40000000000000%02d", i);
+            cardRepository.save(TestEntities.card(number, owner, INITIAL_BALANCE));
+            cardNumbers.add(number);
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        transactionRepository.deleteAll();
+        cardRepository.deleteAll();
+        userRepository.deleteAll();
+        roleRepository.deleteAll();
+    }
+
+    @Test
+    void createTransfer_ParallelTransfers_PreserveTotalBalance() throws Exception {
+        AtomicInteger succeeded = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        List<Future<?>> futures = new ArrayList<>();
+
+        for (int t = 0; t < THREADS; t++) {
+            futures.add(executor.submit(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                for (int i = 0; i < TRANSFERS_PER_THREAD; i++) {
+                    int from = random.nextInt(CARDS);
+                    int to = (from + 1 + random.nextInt(CARDS - 1)) % CARDS;
+                    Money amount = Money.ofMinor(random.nextInt(1, 30000));
+                    try {
+                        transactionService.createTransfer(
+                                new TransactionRequestDto(cardNumbers.get(from), cardNumbers.get(to), amount));
+                        succeeded.incrementAndGet();
+                    } catch (InsufficientFundsException e) {
+                        rejected.incrementAndGet();
+                    }
+                }
+            }));
+        }
+
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(2, TimeUnit.MINUTES), "Переводы не завершились вовремя");
+        for (Future<?> future : futures) {
+            future.get();
+        }
+
+        Money total = cardRepository.findAll().stream()
+                .map(Card::getBalance)
+                .reduce(Money.ZERO, Money::plus);
+
+        assertEquals(0, Money.ofMinor(INITIAL_BALANCE.minorUnits() * CARDS).compareTo(total));
+        assertEquals(THREADS * TRANSFERS_PER_THREAD, succeeded.get() + rejected.get());
+        assertEquals(succeeded.get(), transactionRepository.count());
+        assertTrue(cardRepository.findAll().stream().allMatch(card -> card.getBalance().signum() >= 0));
+    }
+
+    @Test
+    void createTransfer_OpposingTransfers_DoNotDeadlock() throws Exception {
+        String a = cardNumbers.get(0);
+        String b = cardNumbers.get(1);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+
+        Future<?> forward = executor.submit(() -> {
+            for (int i = 0; i < 500; i++) {
+                transactionService.createTransfer(new TransactionRequestDto(a, b, Money.of("1.00")));
+            }
+        });
+        Future<?> backward = executor.submit(() -> {
+            for (int i = 0; i < 500; i++) {
+                transactionService.createTransfer(new TransactionRequestDto(b, a, Money.of("1.00")));
+            }
+        });
+
+        forward.get(1, TimeUnit.MINUTES);
+        backward.get(1, TimeUnit.MINUTES);
+        executor.shutdown();
+
+        assertEquals(0, INITIAL_BALANCE.compareTo(cardRepository.findByCardNumber(a).orElseThrow().getBalance()));
+        assertEquals(0, INITIAL_BALANCE.compareTo(cardRepository.findByCardNumber(b).orElseThrow().getBalance()));
+        assertEquals(1000, transactionRepository.count());
+    }
+}
@@ -0,0 +1,113 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.TransactionDirection;
+import com.example.bankcards.dto.TransactionHistoryRequest;
+import com.example.bankcards.dto.TransactionPageResponseDto;
+import com.example.bankcards.dto.TransactionRequestDto;
+import com.example.bankcards.dto.TransactionResponseDto;
+import com.example.bankcards.entity.Money;
+import com.example.bankcards.entity.User;
+import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.repository.TransactionRepository;
+import com.example.bankcards.repository.UserRepository;
+import com.example.bankcards.support.TestEntities;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class TransactionServiceHistoryTest {
+
+    private static final String CARD_A = "6000000000000001";
+    private static final String CARD_B = "6000000000000002";
+    private static final TransactionHistoryRequest ALL = new TransactionHistoryRequest(null, null, null, null, null);
+
+    @Autowired
+    private TransactionServiceImpl transactionService;
+
+    @Autowired
+    private CardRepository cardRepository;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @BeforeEach
+    void setUp() {
+        User owner = userRepository.save(TestEntities.user("history@bank.com"));
+
+        cardRepository.save(TestEntities.card(CARD_A, owner, Money.of("10000.00")));
+        cardRepository.save(TestEntities.card(CARD_B, owner, Money.of("10000.00")));
+
+        for (int i = 1; i <= 25; i++) {
+            TransactionRequestDto request = i % 3 == 0
+                    ? new TransactionRequestDto(CARD_B, CARD_A, Money.ofMinor(i * 100L))
+                    : new TransactionRequestDto(CARD_A, CARD_B, Money.ofMinor(i * 100L));
+            transactionService.createTransfer(request);
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        transactionRepository.deleteAll();
+        cardRepository.deleteAll();
+        userRepository.deleteAll();
+    }
+
+    @Test
+    void getTransactionsByCardId_WalksAllPagesNewestFirst() {
+        List<TransactionResponseDto> all = new ArrayList<>();
+        String cursor = null;
+        int pages = 0;
+        do {
+            TransactionPageResponseDto page = transactionService.getTransactionsByCardId(CARD_A, ALL, cursor, 10);
+            all.addAll(page.content());
+            cursor = page.nextCursor();
+            pages++;
+        } while (cursor != null);
+
+        assertEquals(3, pages);
+        assertEquals(25, all.size());
+        assertEquals(25, new HashSet<>(all.stream().map(TransactionResponseDto::id).toList()).size());
+        for (int i = 1; i < all.size(); i++) {
+            assertTrue(all.get(i - 1).id() > all.get(i).id());
+        }
+    }
+
+    @Test
+    void getTransactionsByCardId_AppliesDirectionAndAmountFilters() {
+        TransactionHistoryRequest incoming = new TransactionHistoryRequest(
+                null, null, TransactionDirection.INCOMING, null, null);
+        List<TransactionResponseDto> received = transactionService.getTransactionsByCardId(CARD_A, incoming, null, 50).content();
+        assertEquals(8, received.size());
+        String maskedA = "****" + CARD_A.substring(CARD_A.length() - 4);
+        assertTrue(received.stream().allMatch(dto -> dto.direction() == TransactionDirection.INCOMING
+                && dto.maskedToCardNumber().equals(maskedA)));
+
+        TransactionHistoryRequest outgoingTenToTwenty = new TransactionHistoryRequest(
+                null, null, TransactionDirection.OUTGOING, Money.of("10"), Money.of("20"));
+        TransactionPageResponseDto page = transactionService.getTransactionsByCardId(CARD_A, outgoingTenToTwenty, null, 50);
+
+        assertEquals(8, page.content().size());
+        assertFalse(page.hasNext());
+        assertNull(page.nextCursor());
+    }
+
+    @Test
+    void getTransactionsByCardId_InvalidCursor_ThrowsException() {
+        assertThrows(IllegalArgumentException.class,
+                () -> transactionService.getTransactionsByCardId(CARD_A, ALL, "not-a-cursor", 10));
+    }
+}
@@ -0,0 +1,109 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.TransactionRequestDto;
+import com.example.bankcards.entity.Money;
+import com.example.bankcards.entity.User;
+import com.example.bankcards.exception.CardNotFoundException;
+import com.example.bankcards.exception.InsufficientFundsException;
+import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.repository.TransactionRepository;
+import com.example.bankcards.repository.UserRepository;
+import com.example.bankcards.support.TestEntities;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@AutoConfigureObservability
+@ActiveProfiles("test")
+class TransferMetricsTest {
+
+    private static final String CARD_A = "5300000000000001";
+    private static final String CARD_B = "5300000000000002";
+    private static final String MISSING_CARD = "5300000000009999";
+
+    @Autowired
+    private TransactionServiceImpl transactionService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private CardRepository cardRepository;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @BeforeEach
+    void setUp() {
+        User owner = userRepository.save(TestEntities.user("metrics@bank.com"));
+
+        cardRepository.save(TestEntities.card(CARD_A, owner, Money.of("100.00")));
+        cardRepository.save(TestEntities.card(CARD_B, owner, Money.of("100.00")));
+    }
+
+    @AfterEach
+    void tearDown() {
+        transactionRepository.deleteAll();
+        cardRepository.deleteAll();
+        userRepository.deleteAll();
+    }
+
+    @Test
+    void createTransfer_RecordsTimerPerOutcomeAndSuccessfulVolume() {
+        long success = count("success");
+        long insufficient = count("insufficient_funds");
+        long notFound = count("card_not_found");
+        long sameCard = count("same_card");
+        double volume = meterRegistry.counter("transfers.amount").count();
+
+        transactionService.createTransfer(new TransactionRequestDto(CARD_A, CARD_B, Money.of("30.50")));
+        assertThrows(InsufficientFundsException.class, () ->
+                transactionService.createTransfer(new TransactionRequestDto(CARD_A, CARD_B, Money.of("500.00"))));
+        assertThrows(CardNotFoundException.class, () ->
+                transactionService.createTransfer(new TransactionRequestDto(CARD_A, MISSING_CARD, Money.of("1.00"))));
+        assertThrows(IllegalArgumentException.class, () ->
+                transactionService.createTransfer(new TransactionRequestDto(CARD_A, CARD_A, Money.of("1.00"))));
+
+        assertEquals(success + 1, count("success"));
+        assertEquals(insufficient + 1, count("insufficient_funds"));
+        assertEquals(notFound + 1, count("card_not_found"));
+        assertEquals(sameCard + 1, count("same_card"));
+        assertEquals(volume + 30.50, meterRegistry.counter("transfers.amount").count(), 1e-9);
+    }
+
+    @Test
+    void prometheusEndpoint_ExposesTransferHistogramAndRepositoryTimers() throws Exception {
+        transactionService.createTransfer(new TransactionRequestDto(CARD_A, CARD_B, Money.of("1.00")));
+
+        mockMvc.perform(get("/actuator/prometheus"))
+                .andExpect(status().isOk())
+                .andExpect(content().string(containsString("transfers_seconds_bucket{")))
+                .andExpect(content().string(containsString("transfers_amount_total")))
+                .andExpect(content().string(containsString("spring_data_repository_invocations_seconds_count{")));
+    }
+
+    private long count(String outcome) {
+        return meterRegistry.timer("transfers", "outcome", outcome).count();
+    }
+}
@@ -0,0 +1,157 @@
+package com.example.bankcards.service.ledger;
+
+import com.example.bankcards.config.CacheConfig;
+import com.example.bankcards.dto.TransactionRequestDto;
+import com.example.bankcards.dto.TransactionResponseDto;
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.entity.Money;
+import com.example.bankcards.entity.User;
+import com.example.bankcards.exception.IdempotencyKeyConflictException;
+import com.example.bankcards.exception.TransferOutcomeUnknownException;
+import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.repository.IdempotencyKeyRepository;
+import com.example.bankcards.repository.TransactionRepository;
+import com.example.bankcards.repository.UserRepository;
+import com.example.bankcards.service.IdempotencyServiceImpl;
+import com.example.bankcards.service.TransactionServiceImpl;
+import com.example.bankcards.support.TestEntities;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.CacheManager;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Повтор перевода по ключу идемпотентности, когда журнал не подтвердил его за ack-timeout:
+ * писатель стоит на перечитывании карты, пока репликация ждёт блокировку строки cards.
+ */
+@SpringBootTest(properties = {
+        "app.transfer.strategy=LEDGER",
+        "app.ledger.wal.directory=target/ledger-wal/${random.uuid}",
+        "app.ledger.wal.segment-size=64KB",
+        "app.ledger.ack-timeout=300ms",
+        "app.idempotency.lease=1s",
+        "app.idempotency.wait-timeout=200ms",
+        "spring.datasource.url=jdbc:h2:mem:ledger-ack;DB_CLOSE_DELAY=-1"
+})
+@ActiveProfiles("test")
+class LedgerAckTimeoutTest {
+
+    private static final String CARD_A = "8500000000000001";
+    private static final String CARD_B = "8500000000000002";
+    private static final Duration REPLICATION_TIMEOUT = Duration.ofSeconds(30);
+
+    @Autowired
+    private LedgerEngine ledgerEngine;
+
+    @Autowired
+    private TransactionServiceImpl transactionService;
+
+    @Autowired
+    private IdempotencyServiceImpl idempotencyService;
+
+    @Autowired
+    private CardRepository cardRepository;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private IdempotencyKeyRepository idempotencyKeyRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @BeforeEach
+    void setUp() {
+        User owner = userRepository.save(TestEntities.user("ack@bank.com"));
+
+        cardRepository.save(TestEntities.card(CARD_A, owner, Money.of("100.00")));
+        cardRepository.save(TestEntities.card(CARD_B, owner, Money.of("100.00")));
+    }
+
+    @AfterEach
+    void tearDown() {
+        assertTrue(ledgerEngine.awaitReplication(REPLICATION_TIMEOUT));
+        List<Long> cardIds = cardRepository.findAll().stream().map(Card::getId).toList();
+        cacheManager.getCache(CacheConfig.IDEMPOTENT_RESPONSES).clear();
+        idempotencyKeyRepository.deleteAll();
+        transactionRepository.deleteAll();
+        cardRepository.deleteAll();
+        userRepository.deleteAll();
+        ledgerEngine.invalidate(cardIds);
+    }
+
+    @Test
+    void createTransfer_RetryAfterAckTimeout_AppliedOnce() throws Exception {
+        Long cardA = cardRepository.findByCardNumber(CARD_A).orElseThrow().getId();
+        TransactionRequestDto request = new TransactionRequestDto(CARD_A, CARD_B, Money.of("5.00"));
+
+        CountDownLatch locked = new CountDownLatch(1);
+        CountDownLatch unlock = new CountDownLatch(1);
+        CompletableFuture<Void> rowLock = CompletableFuture.runAsync(() -> transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.queryForObject("select id from cards where id = ? for update", Long.class, cardA);
+            locked.countDown();
+            try {
+                unlock.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }));
+        CompletableFuture<Void> invalidation;
+        try {
+            assertTrue(locked.await(10, TimeUnit.SECONDS));
+            // Подтверждённый перевод не может реплицироваться, а перечитывание карты ждёт его репликации
+            transactionService.createTransfer(new TransactionRequestDto(CARD_A, CARD_B, Money.of("10.00")));
+            invalidation = CompletableFuture.runAsync(() -> ledgerEngine.invalidate(List.of(cardA)));
+            Thread.sleep(300);
+
+            assertThrows(TransferOutcomeUnknownException.class,
+                    () -> idempotencyService.createTransfer("ack@bank.com", "ack-key", request));
+            // Результат неизвестен — ключ не освобождается, повтор в пределах аренды получает 409
+            assertThrows(IdempotencyKeyConflictException.class,
+                    () -> idempotencyService.createTransfer("ack@bank.com", "ack-key", request));
+        } finally {
+            unlock.countDown();
+        }
+        rowLock.get(10, TimeUnit.SECONDS);
+        invalidation.get(REPLICATION_TIMEOUT.toSeconds(), TimeUnit.SECONDS);
+
+        // После аренды повтор занимает ключ заново, а журнал возвращает уже проведённый перевод
+        Thread.sleep(1000);
+        TransactionResponseDto retry = idempotencyService.createTransfer("ack@bank.com", "ack-key", request);
+
+        assertNotNull(retry.id());
+        assertTrue(ledgerEngine.awaitReplication(REPLICATION_TIMEOUT));
+        assertEquals(2, transactionRepository.count());
+        assertBalance(CARD_A, "85.00");
+        assertBalance(CARD_B, "115.00");
+        assertTrue(idempotencyKeyRepository.findById("ack@bank.com:ack-key").orElseThrow().isCompleted());
+    }
+
+    private void assertBalance(String cardNumber, String expected) {
+        Money balance = cardRepository.findByCardNumber(cardNumber).orElseThrow().getBalance();
+        assertEquals(0, Money.of(expected).compareTo(balance));
+    }
+}
@@ -0,0 +1,216 @@
+package com.example.bankcards.service.ledger;
+
+import com.example.bankcards.config.CacheConfig;
+import com.example.bankcards.dto.BatchTransferMode;
+import com.example.bankcards.dto.StatusChangeRequest;
+import com.example.bankcards.dto.TransactionRequestDto;
+import com.example.bankcards.dto.TransactionResponseDto;
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.entity.Money;
+import com.example.bankcards.entity.User;
+import com.example.bankcards.exception.CardNotFoundException;
+import com.example.bankcards.exception.InsufficientFundsException;
+import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.repository.IdempotencyKeyRepository;
+import com.example.bankcards.repository.TransactionRepository;
+import com.example.bankcards.repository.UserRepository;
+import com.example.bankcards.service.CardServiceImpl;
+import com.example.bankcards.service.IdempotencyServiceImpl;
+import com.example.bankcards.service.TransactionServiceImpl;
+import com.example.bankcards.support.TestEntities;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.CacheManager;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = {
+        "app.transfer.strategy=LEDGER",
+        "app.ledger.wal.directory=target/ledger-wal/${random.uuid}",
+        "app.ledger.wal.segment-size=64KB",
+        "spring.datasource.url=jdbc:h2:mem:ledger;DB_CLOSE_DELAY=-1"
+})
+@ActiveProfiles("test")
+class LedgerEngineTest {
+
+    private static final String CARD_A = "8400000000000001";
+    private static final String CARD_B = "8400000000000002";
+    private static final Duration REPLICATION_TIMEOUT = Duration.ofSeconds(30);
+
+    @Autowired
+    private LedgerEngine ledgerEngine;
+
+    @Autowired
+    private TransactionServiceImpl transactionService;
+
+    @Autowired
+    private CardServiceImpl cardService;
+
+    @Autowired
+    private CardRepository cardRepository;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private IdempotencyServiceImpl idempotencyService;
+
+    @Autowired
+    private IdempotencyKeyRepository idempotencyKeyRepository;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @BeforeEach
+    void setUp() {
+        User owner = userRepository.save(TestEntities.user("ledger@bank.com"));
+
+        cardRepository.save(TestEntities.card(CARD_A, owner, Money.of("100.00")));
+        cardRepository.save(TestEntities.card(CARD_B, owner, Money.of("100.00")));
+    }
+
+    @AfterEach
+    void tearDown() {
+        assertTrue(ledgerEngine.awaitReplication(REPLICATION_TIMEOUT));
+        List<Long> cardIds = cardRepository.findAll().stream().map(Card::getId).toList();
+        cacheManager.getCache(CacheConfig.IDEMPOTENT_RESPONSES).clear();
+        idempotencyKeyRepository.deleteAll();
+        transactionRepository.deleteAll();
+        cardRepository.deleteAll();
+        userRepository.deleteAll();
+        ledgerEngine.invalidate(cardIds);
+    }
+
+    @Test
+    void createTransfer_AcknowledgedBeforeReplication_ReachesDatabase() {
+        TransactionResponseDto response = transactionService.createTransfer(
+                new TransactionRequestDto(CARD_A, CARD_B, Money.of("30.25")));
+
+        assertNotNull(response.id());
+        assertTrue(ledgerEngine.awaitReplication(REPLICATION_TIMEOUT));
+        assertEquals(1, transactionRepository.count());
+        assertEquals(0, Money.of("30.25").compareTo(
+                transactionRepository.findAll().get(0).getAmount()));
+        assertBalance(CARD_A, "69.75");
+        assertBalance(CARD_B, "130.25");
+    }
+
+    @Test
+    void createTransfer_IdempotentReplayBeforeReplication_ReturnsStoredResult() {
+        TransactionRequestDto request = new TransactionRequestDto(CARD_A, CARD_B, Money.of("5.00"));
+        TransactionResponseDto first = idempotencyService.createTransfer("ledger@bank.com", "ledger-key", request);
+
+        // Без локального кеша повтор читает таблицу ключей; строка в transactions может ещё не появиться
+        cacheManager.getCache(CacheConfig.IDEMPOTENT_RESPONSES).clear();
+        TransactionResponseDto replay = idempotencyService.createTransfer("ledger@bank.com", "ledger-key", request);
+
+        assertEquals(first.id(), replay.id());
+        assertEquals(first.amount(), replay.amount());
+        assertTrue(ledgerEngine.awaitReplication(REPLICATION_TIMEOUT));
+        assertBalance(CARD_A, "95.00");
+    }
+
+    @Test
+    void createTransfer_RejectsLikeJpaPath() {
+        assertThrows(InsufficientFundsException.class, () -> transactionService.createTransfer(
+                new TransactionRequestDto(CARD_A, CARD_B, Money.of("100.01"))));
+        assertThrows(CardNotFoundException.class, () -> transactionService.createTransfer(
+                new TransactionRequestDto(CARD_A, "8400000000009999", Money.of("1.00"))));
+        assertThrows(IllegalArgumentException.class, () -> transactionService.createTransfer(
+                new TransactionRequestDto(CARD_A, CARD_B, Money.of("0.001"))));
+        assertThrows(IllegalStateException.class, () -> transactionService.createTransfers(
+                List.of(new TransactionRequestDto(CARD_A, CARD_B, Money.of("1.00"))), BatchTransferMode.ATOMIC));
+
+        assertTrue(ledgerEngine.awaitReplication(REPLICATION_TIMEOUT));
+        assertEquals(0, transactionRepository.count());
+    }
+
+    @Test
+    void createTransfer_ParallelProducers_PreserveTotalBalance() throws Exception {
+        AtomicInteger succeeded = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            futures.add(executor.submit(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                for (int i = 0; i < 200; i++) {
+                    boolean forward = random.nextBoolean();
+                    try {
+                        transactionService.createTransfer(new TransactionRequestDto(
+                                forward ? CARD_A : CARD_B, forward ? CARD_B : CARD_A,
+                                Money.ofMinor(random.nextInt(1, 2000))));
+                        succeeded.incrementAndGet();
+                    } catch (InsufficientFundsException ignored) {
+                        // допустимый исход
+                    }
+                }
+            }));
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(1, TimeUnit.MINUTES));
+        for (Future<?> future : futures) {
+            future.get();
+        }
+
+        assertTrue(ledgerEngine.awaitReplication(REPLICATION_TIMEOUT));
+        assertEquals(succeeded.get(), transactionRepository.count());
+        Money total = cardRepository.findAll().stream().map(Card::getBalance).reduce(Money.ZERO, Money::plus);
+        assertEquals(0, Money.of("200.00").compareTo(total));
+    }
+
+    @Test
+    void invalidate_BalanceChangedOutsideLedger_IsReloaded() {
+        transactionService.createTransfer(new TransactionRequestDto(CARD_A, CARD_B, Money.of("10.00")));
+        assertTrue(ledgerEngine.awaitReplication(REPLICATION_TIMEOUT));
+
+        Card card = cardRepository.findByCardNumber(CARD_A).orElseThrow();
+        card.setBalance(Money.ZERO);
+        cardRepository.save(card);
+        ledgerEngine.invalidate(List.of(card.getId()));
+
+        assertThrows(InsufficientFundsException.class, () -> transactionService.createTransfer(
+                new TransactionRequestDto(CARD_A, CARD_B, Money.of("0.01"))));
+    }
+
+    @Test
+    void createTransfer_BlockedCard_RejectedUntilReactivated() {
+        Long cardId = cardRepository.findByCardNumber(CARD_B).orElseThrow().getId();
+        cardService.changeCardStatus(cardId, new StatusChangeRequest("BLOCKED"));
+
+        IllegalStateException toBlocked = assertThrows(IllegalStateException.class, () -> transactionService.createTransfer(
+                new TransactionRequestDto(CARD_A, CARD_B, Money.of("1.00"))));
+        assertTrue(toBlocked.getMessage().startsWith("Карта получателя неактивна"));
+        IllegalStateException fromBlocked = assertThrows(IllegalStateException.class, () -> transactionService.createTransfer(
+                new TransactionRequestDto(CARD_B, CARD_A, Money.of("1.00"))));
+        assertTrue(fromBlocked.getMessage().startsWith("Карта отправителя неактивна"));
+
+        cardService.changeCardStatus(cardId, new StatusChangeRequest("ACTIVE"));
+        transactionService.createTransfer(new TransactionRequestDto(CARD_A, CARD_B, Money.of("1.00")));
+
+        assertTrue(ledgerEngine.awaitReplication(REPLICATION_TIMEOUT));
+        assertEquals(1, transactionRepository.count());
+        assertBalance(CARD_B, "101.00");
+    }
+
+    private void assertBalance(String cardNumber, String expected) {
+        Money balance = cardRepository.findByCardNumber(cardNumber).orElseThrow().getBalance();
+        assertEquals(0, Money.of(expected).compareTo(balance));
+    }
+}
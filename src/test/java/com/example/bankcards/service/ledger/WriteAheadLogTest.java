@@ -0,0 +1,96 @@
+package com.example.bankcards.service.ledger;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WriteAheadLogTest {
+
+    // Две записи на сегмент, чтобы проверить переход между сегментами
+    private static final long SEGMENT_SIZE = 2L * WriteAheadLog.RECORD_SIZE;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void open_AfterRestart_ReadsTailAndContinuesSequence() throws Exception {
+        try (WriteAheadLog wal = WriteAheadLog.open(directory, SEGMENT_SIZE, true)) {
+            for (long sequence = 1; sequence <= 3; sequence++) {
+                wal.append(record(sequence));
+            }
+            wal.force();
+        }
+
+        try (WriteAheadLog wal = WriteAheadLog.open(directory, SEGMENT_SIZE, true)) {
+            assertEquals(3, wal.lastSequence());
+            assertEquals(List.of(record(2), record(3)), wal.readAfter(1));
+
+            wal.append(record(4));
+            wal.append(record(5));
+            wal.force();
+            assertEquals(List.of(4L, 5L), wal.readAfter(3).stream().map(LedgerRecord::sequence).toList());
+        }
+        assertEquals(3, segmentCount());
+    }
+
+    @Test
+    void open_TornLastRecord_StopsBeforeIt() throws Exception {
+        try (WriteAheadLog wal = WriteAheadLog.open(directory, SEGMENT_SIZE, true)) {
+            wal.append(record(1));
+            wal.append(record(2));
+            wal.force();
+        }
+        try (FileChannel channel = FileChannel.open(onlySegment(), StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[]{1, 2, 3}), WriteAheadLog.RECORD_SIZE + 20);
+        }
+
+        try (WriteAheadLog wal = WriteAheadLog.open(directory, SEGMENT_SIZE, true)) {
+            assertEquals(1, wal.lastSequence());
+            wal.append(record(2));
+            wal.force();
+            assertEquals(List.of(record(1), record(2)), wal.readAfter(0));
+        }
+    }
+
+    @Test
+    void release_DeletesOnlyFullyReplicatedSealedSegments() throws Exception {
+        try (WriteAheadLog wal = WriteAheadLog.open(directory, SEGMENT_SIZE, true)) {
+            for (long sequence = 1; sequence <= 5; sequence++) {
+                wal.append(record(sequence));
+            }
+            wal.force();
+
+            wal.release(3);
+            assertEquals(2, segmentCount());
+            assertEquals(List.of(3L, 4L, 5L), wal.readAfter(0).stream().map(LedgerRecord::sequence).toList());
+
+            wal.release(5);
+            assertEquals(1, segmentCount()); // текущий сегмент не удаляется
+        }
+    }
+
+    private long segmentCount() throws Exception {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.count();
+        }
+    }
+
+    private Path onlySegment() throws Exception {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.findFirst().orElseThrow();
+        }
+    }
+
+    private static LedgerRecord record(long sequence) {
+        return new LedgerRecord(sequence, (int) sequence + 100, 1, 2, sequence * 100, 1_700_000_000_000_000L + sequence);
+    }
+}
@@ -0,0 +1,26 @@
+package com.example.bankcards.support;
+
+import com.example.bankcards.config.SqlStatementCounter;
+import org.junit.jupiter.api.function.ThrowingSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Проверка числа SQL-запросов Hibernate, выполненных действием в текущем потоке.
+ * С MockMvc в счёт входит весь запрос: фильтры, контроллер и сериализация ответа.
+ */
+public final class QueryCountAssertions {
+
+    private QueryCountAssertions() {
+    }
+
+    public static <T> T assertMaxQueries(SqlStatementCounter counter, int maxQueries, String description,
+                                         ThrowingSupplier<T> action) throws Throwable {
+        try (SqlStatementCounter.Scope scope = counter.open()) {
+            T result = action.get();
+            assertTrue(scope.count() <= maxQueries,
+                    description + ": " + scope.count() + " SQL-запрос(ов), допустимо не больше " + maxQueries);
+            return result;
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package com.example.bankcards.support;
+
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.entity.Money;
+import com.example.bankcards.entity.Role;
+import com.example.bankcards.entity.User;
+import com.example.bankcards.entity.enums.CardStatus;
+
+import java.time.LocalDate;
+
+/**
+ * Несохранённые сущности для тестов: пользователь с ролью USER и карта со сроком действия три года.
+ * Тест сохраняет их своим репозиторием и при необходимости меняет поля до сохранения.
+ */
+public final class TestEntities {
+
+    private TestEntities() {
+    }
+
+    public static User user(String username) {
+        User user = new User();
+        user.setUsername(username);
+        user.setPassword("password");
+        user.setRole(new Role("USER", "Regular user"));
+        return user;
+    }
+
+    public static Card card(String number, User owner, Money balance) {
+        return card(number, owner, balance, CardStatus.ACTIVE);
+    }
+
+    public static Card card(String number, User owner, Money balance, CardStatus status) {
+        Card card = new Card();
+        card.setCardNumber(number);
+        card.setOwner(owner);
+        card.setExpirationDate(LocalDate.now().plusYears(3));
+        card.setStatus(status);
+        card.setBalance(balance);
+        return card;
+    }
+}